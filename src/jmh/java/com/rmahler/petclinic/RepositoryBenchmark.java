@@ -0,0 +1,226 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.owner.OwnerRepository;
+import com.rmahler.petclinic.owner.OwnerSummary;
+import com.rmahler.petclinic.system.ClinicDataGenerator;
+import com.rmahler.petclinic.system.ClinicDataGenerator.Result;
+import com.rmahler.petclinic.system.SqlStatistics;
+import com.rmahler.petclinic.system.SqlStatistics.ExecutedStatement;
+import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetRepository;
+import com.rmahler.petclinic.visit.Visit;
+import com.rmahler.petclinic.visit.VisitRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * JMH benchmark of the repository queries that grow with the data set, against the
+ * application's JPA layer on an in-memory H2 database created from
+ * <code>db/h2/schema.sql</code> and filled by the {@link ClinicDataGenerator} with 10k,
+ * 100k and 1M owners, one vet per 1,000 owners and a year of visits. Throughput and
+ * sampled latency are reported for each query; the second-level and query caches are
+ * off, so every call reaches the database.
+ * <p>
+ * Before measuring, each method is called once and the statements Hibernate sends for
+ * it are recorded through {@link SqlStatistics}, which only instruments connections
+ * while a unit of work is active, so the measured calls are not proxied. Their H2
+ * execution plans, for the parameters they were sent with, are written to
+ * <code>target/query-plans/&lt;owners&gt;.txt</code>, so the effect of adding or
+ * dropping an index, or of changing a query, shows up as a diff between two runs.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepositoryBenchmark {
+
+	// fixed so that every run generates the same data
+	private static final LocalDate TODAY = LocalDate.of(2020, 6, 1);
+
+	@Param({ "10000", "100000", "1000000" })
+	private int ownerCount;
+
+	private ConfigurableApplicationContext context;
+
+	private OwnerRepository owners;
+
+	private VisitRepository visits;
+
+	private VetRepository vets;
+
+	private Result data;
+
+	private String[] lastNames;
+
+	private int visitDays;
+
+	private int call;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		context = new SpringApplicationBuilder(PetClinicApplication.class).bannerMode(Banner.Mode.OFF)
+				.logStartupInfo(false)
+				.run("--spring.profiles.active=", "--database=h2", "--petclinic.sql.statistics=true",
+						"--spring.datasource.url=jdbc:h2:mem:petclinic-benchmark;DB_CLOSE_DELAY=-1",
+						"--server.port=0", "--spring.jmx.enabled=false", "--logging.level.root=WARN",
+						"--logging.level.com.rmahler.petclinic.system.ClinicDataGenerator=INFO",
+						"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+						"--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+						"--spring.jpa.properties.hibernate.generate_statistics=false");
+		owners = context.getBean(OwnerRepository.class);
+		visits = context.getBean(VisitRepository.class);
+		vets = context.getBean(VetRepository.class);
+
+		JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+		ClinicDataGenerator generator = new ClinicDataGenerator(jdbc,
+				context.getBean(PlatformTransactionManager.class), 42);
+		generator.setOwners(ownerCount);
+		generator.setHistoryYears(1);
+		generator.setUpcomingDays(30);
+		generator.setToday(TODAY);
+		data = generator.generate();
+		visitDays = (int) data.getVisitsFrom().until(data.getVisitsUntil(), ChronoUnit.DAYS);
+		// every name is looked up equally often, common and rare ones alike
+		lastNames = jdbc.queryForList("SELECT DISTINCT last_name FROM owners ORDER BY last_name", String.class)
+				.toArray(new String[0]);
+		writeQueryPlans(jdbc);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * One call of each benchmarked repository method, with a mid-range last name and the
+	 * first generated owner, pet and vet.
+	 */
+	private Map<String, Runnable> benchmarkedCalls() {
+		String lastName = lastNames[lastNames.length / 2];
+		Map<String, Runnable> calls = new LinkedHashMap<>();
+		calls.put("OwnerRepository.findByLastName", () -> owners.findByLastName(lastName));
+		calls.put("OwnerRepository.findSummaryPageByLastName",
+				() -> owners.findSummaryPageByLastName(lastName, "", 0, PageRequest.of(0, 20)));
+		calls.put("OwnerRepository.findById", () -> owners.findById(data.getFirstOwnerId()));
+		calls.put("VisitRepository.findByPetId", () -> visits.findByPetId(data.getFirstPetId()));
+		calls.put("VisitRepository.getFilledTimeSlots", () -> visits.getFilledTimeSlots(TODAY, data.getFirstVetId()));
+		calls.put("VetRepository.findAll", () -> vets.findAll());
+		return calls;
+	}
+
+	/**
+	 * Runs each benchmarked call once, recording the statements Hibernate sends, and
+	 * writes the H2 plan of each with the parameters it was executed with.
+	 */
+	private void writeQueryPlans(JdbcTemplate jdbc) throws IOException {
+		StringBuilder plans = new StringBuilder();
+		benchmarkedCalls().forEach((method, call) -> {
+			SqlStatistics statistics = SqlStatistics.beginRecording();
+			try {
+				call.run();
+			}
+			finally {
+				statistics.end();
+			}
+			for (ExecutedStatement statement : statistics.getStatements()) {
+				plans.append("-- ").append(method).append('\n').append(statement.getSql()).append('\n');
+				plans.append("-- parameters: ").append(statement.getParameters()).append('\n');
+				jdbc.queryForList("EXPLAIN " + statement.getSql(), String.class,
+						statement.getParameters().toArray()).forEach(plan -> plans.append(plan).append('\n'));
+				plans.append('\n');
+			}
+		});
+		Path file = Paths.get("target", "query-plans", ownerCount + ".txt");
+		Files.createDirectories(file.getParent());
+		Files.write(file, plans.toString().getBytes());
+	}
+
+	// the benchmark cycles through owners, pets, names and days, so runs are comparable
+	private int next(int bound) {
+		call = (call + 7_919) % Integer.MAX_VALUE;
+		return call % bound;
+	}
+
+	@Benchmark
+	public Collection<Owner> findOwnersByLastName() {
+		return owners.findByLastName(lastNames[next(lastNames.length)]);
+	}
+
+	@Benchmark
+	public List<OwnerSummary> findOwnerSummaryPage() {
+		return owners.findSummaryPageByLastName(lastNames[next(lastNames.length)], "", 0, PageRequest.of(0, 20));
+	}
+
+	@Benchmark
+	public Owner findOwnerById() {
+		return owners.findById(data.getFirstOwnerId() + next(data.getOwnerCount()));
+	}
+
+	@Benchmark
+	public List<Visit> findVisitsByPetId() {
+		return visits.findByPetId(data.getFirstPetId() + next(data.getPetCount()));
+	}
+
+	@Benchmark
+	public List<Integer> getFilledTimeSlots() {
+		return visits.getFilledTimeSlots(data.getVisitsFrom().plusDays(next(visitDays)),
+				data.getFirstVetId() + next(data.getVetCount()));
+	}
+
+	@Benchmark
+	public Collection<Vet> findAllVets() {
+		return vets.findAll();
+	}
+
+}
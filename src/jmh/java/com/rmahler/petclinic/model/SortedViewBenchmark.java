@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.pet.Pet;
+import com.rmahler.petclinic.vet.Specialty;
+import com.rmahler.petclinic.vet.Vet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+
+/**
+ * JMH comparison of the sorted collection getters over one render of the pages that use
+ * them most: the owner page reads the pets twice, the visit form reads the specialties
+ * of every vet. {@link SortedView} is compared with the previous copy and reflective
+ * {@link PropertyComparator} sort on each call. Run with <code>-prof gc</code> to compare
+ * allocation rates.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedViewBenchmark {
+
+	private static final String[] SPECIALTIES = { "surgery", "radiology", "dentistry", "cardiology" };
+
+	private RawOwner owner;
+
+	private List<RawVet> vets;
+
+	@Setup
+	public void setup() {
+		owner = new RawOwner();
+		for (String name : new String[] { "Rosy", "Jewel", "Basil", "Max", "Leo" }) {
+			Pet pet = new Pet();
+			pet.setName(name);
+			owner.addPet(pet);
+		}
+		vets = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			RawVet vet = new RawVet();
+			for (int j = 0; j < i % SPECIALTIES.length + 1; j++) {
+				Specialty specialty = new Specialty();
+				specialty.setId(j);
+				specialty.setName(SPECIALTIES[j]);
+				vet.addSpecialty(specialty);
+			}
+			vets.add(vet);
+		}
+	}
+
+	@Benchmark
+	public void sortedView(Blackhole blackhole) {
+		blackhole.consume(owner.getPets());
+		blackhole.consume(owner.getPets());
+		for (RawVet vet : vets) {
+			blackhole.consume(vet.getSpecialties());
+		}
+	}
+
+	@Benchmark
+	public void reflectiveSort(Blackhole blackhole) {
+		// the previous implementation, sorting a fresh copy of the set on every call
+		blackhole.consume(sortByName(owner.getRawPets()));
+		blackhole.consume(sortByName(owner.getRawPets()));
+		for (RawVet vet : vets) {
+			blackhole.consume(sortByName(vet.getRawSpecialties()));
+		}
+	}
+
+	private static <T> List<T> sortByName(Collection<T> source) {
+		List<T> sorted = new ArrayList<>(source);
+		PropertyComparator.sort(sorted, new MutableSortDefinition("name", true, true));
+		return sorted;
+	}
+
+	/**
+	 * Exposes the unsorted pet set, which the previous getter copied and sorted.
+	 */
+	private static final class RawOwner extends Owner {
+
+		private Set<Pet> getRawPets() {
+			return getPetsInternal();
+		}
+
+	}
+
+	/**
+	 * Exposes the unsorted specialty set, which the previous getter copied and sorted.
+	 */
+	private static final class RawVet extends Vet {
+
+		private Set<Specialty> getRawSpecialties() {
+			return getSpecialtiesInternal();
+		}
+
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.owner;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.pet.Pet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the pet lookups of {@link Owner}: the name search of
+ * {@link Owner#getPet(String, boolean)}, for the last pet and for a missing name, and the
+ * sorted {@link Owner#getPets()}, both shared and re-sorted after a change. Owners have
+ * 1 to 15 pets in practice, 1000 is the extreme case. Pet names come from a fixed seed,
+ * so runs are comparable.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerBenchmark {
+
+	@Param({ "3", "15", "1000" })
+	private int petCount;
+
+	private Owner owner;
+
+	private String lastAddedName;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		owner = new Owner();
+		for (int i = 0; i < petCount; i++) {
+			Pet pet = new Pet();
+			pet.setName("Pet" + random.nextInt(1_000_000) + "-" + i);
+			owner.addPet(pet);
+			pet.setId(i + 1);
+			lastAddedName = pet.getName();
+		}
+	}
+
+	@Benchmark
+	public Pet getPetByName() {
+		return owner.getPet(lastAddedName.toUpperCase(), true);
+	}
+
+	@Benchmark
+	public Pet getMissingPet() {
+		return owner.getPet("Nobody", true);
+	}
+
+	@Benchmark
+	public List<Pet> getPets() {
+		return owner.getPets();
+	}
+
+	@Benchmark
+	public List<Pet> getPetsAfterChange() {
+		// adding a pet drops the sorted view, so this call sorts again
+		Pet pet = new Pet();
+		pet.setName("New");
+		owner.addPet(pet);
+		owner.getPetsInternal().remove(pet);
+		return owner.getPets();
+	}
+
+}
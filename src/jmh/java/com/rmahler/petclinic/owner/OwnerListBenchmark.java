@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.owner;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.PetClinicApplication;
+import com.rmahler.petclinic.service.ClinicService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JMH comparison of the owners list loaded as managed entities with their pets and as
+ * {@link OwnerSummary} projections, through {@link ClinicService}, for one last name
+ * shared by 1k and 10k owners with one pet each, on an in-memory H2 database. Run with
+ * <code>-prof gc</code> to compare the allocation per list.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerListBenchmark {
+
+	private static final String LAST_NAME = "Footprint";
+
+	@Param({ "1000", "10000" })
+	private int ownerCount;
+
+	private ConfigurableApplicationContext context;
+
+	private ClinicService clinicService;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = new SpringApplicationBuilder(PetClinicApplication.class).bannerMode(Banner.Mode.OFF)
+				.logStartupInfo(false)
+				.run("--spring.profiles.active=", "--database=h2",
+						"--spring.datasource.url=jdbc:h2:mem:petclinic-owner-list;DB_CLOSE_DELAY=-1",
+						"--server.port=0", "--spring.jmx.enabled=false", "--logging.level.root=WARN",
+						"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+						"--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+						"--spring.jpa.properties.hibernate.generate_statistics=false");
+		clinicService = context.getBean(ClinicService.class);
+		seedOwners(context.getBean(JdbcTemplate.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	private void seedOwners(JdbcTemplate jdbc) {
+		int firstOwnerId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM owners", Integer.class);
+		int firstPetId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM pets", Integer.class);
+		List<Object[]> owners = new ArrayList<>();
+		List<Object[]> pets = new ArrayList<>();
+		for (int i = 0; i < ownerCount; i++) {
+			owners.add(new Object[] { firstOwnerId + i, "Owner" + i, LAST_NAME, i + " Main St.", "Madison",
+					"6085550000" });
+			pets.add(new Object[] { firstPetId + i, "Pet" + i, Date.valueOf(LocalDate.of(2015, 1, 1)), 1,
+					firstOwnerId + i });
+		}
+		jdbc.batchUpdate("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)", owners);
+		jdbc.batchUpdate("INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)", pets);
+	}
+
+	@Benchmark
+	public Collection<Owner> findOwnerEntities() {
+		return clinicService.findOwnerByLastName(LAST_NAME);
+	}
+
+	@Benchmark
+	public List<OwnerSummary> findOwnerSummaries() {
+		return clinicService.findOwnerPageByLastName(LAST_NAME, "", 0, ownerCount + 1);
+	}
+
+}
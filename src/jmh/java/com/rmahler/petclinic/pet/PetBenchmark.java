@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.pet;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.visit.Visit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of {@link Pet}: the sorted {@link Pet#getVisits()}, shared and re-sorted
+ * after a visit is added, and {@link Pet#hashCode()}/{@link Pet#equals(Object)} through
+ * a lookup in a set of pets of the same owner. A pet has a few dozen visits in practice,
+ * 10000 is the extreme case. Visit dates come from a fixed seed, so runs are comparable.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetBenchmark {
+
+	@Param({ "20", "10000" })
+	private int size;
+
+	private Pet pet;
+
+	private Set<Pet> pets;
+
+	private Pet probe;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		LocalDate start = LocalDate.of(2010, 1, 1);
+		Owner owner = new Owner();
+		owner.setId(1);
+		pet = new Pet();
+		pet.setName("Leo");
+		pet.setOwner(owner);
+		for (int i = 0; i < size; i++) {
+			Visit visit = new Visit();
+			visit.setDate(start.plusDays(random.nextInt(3_650)));
+			pet.addVisit(visit);
+		}
+		pets = new HashSet<>();
+		for (int i = 0; i < size; i++) {
+			Pet other = new Pet();
+			other.setName("Pet" + i);
+			other.setOwner(owner);
+			pets.add(other);
+		}
+		probe = new Pet();
+		probe.setName("Pet" + (size - 1));
+		probe.setOwner(owner);
+	}
+
+	@Benchmark
+	public List<Visit> getVisits() {
+		return pet.getVisits();
+	}
+
+	@Benchmark
+	public List<Visit> getVisitsAfterChange() {
+		// adding a visit drops the sorted view, so this call sorts again
+		Visit visit = new Visit();
+		pet.addVisit(visit);
+		pet.getVisitsInternal().remove(visit);
+		return pet.getVisits();
+	}
+
+	@Benchmark
+	public int petHashCode() {
+		return probe.hashCode();
+	}
+
+	@Benchmark
+	public boolean containsPet() {
+		return pets.contains(probe);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.pet;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * JMH benchmark of {@link PetTypeFormatter#parse}: the map lookup compared to the
+ * linear scan over all pet types it replaced, with 5 and 500 pet types. Looks up the
+ * last pet type, the worst case for the scan.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetTypeFormatterBenchmark {
+
+	@Param({ "5", "500" })
+	private int petTypeCount;
+
+	private List<PetType> petTypes;
+
+	private PetTypeFormatter formatter;
+
+	private String lastName;
+
+	@Setup
+	public void setup() throws ParseException {
+		petTypes = new ArrayList<>();
+		for (int i = 0; i < petTypeCount; i++) {
+			PetType type = new PetType();
+			type.setId(i);
+			type.setName("type" + i);
+			petTypes.add(type);
+		}
+		lastName = "type" + (petTypeCount - 1);
+
+		PetRepository pets = mock(PetRepository.class);
+		given(pets.findPetTypes()).willReturn(petTypes);
+		formatter = new PetTypeFormatter(pets, Duration.ofMinutes(1));
+		formatter.parse(lastName, Locale.ENGLISH);
+	}
+
+	@Benchmark
+	public PetType parse() throws ParseException {
+		return formatter.parse(lastName, Locale.ENGLISH);
+	}
+
+	@Benchmark
+	public PetType linearScan() {
+		for (PetType type : petTypes) {
+			if (type.getName().equals(lastName)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+}
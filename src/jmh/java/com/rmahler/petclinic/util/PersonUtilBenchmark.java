@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.rmahler.petclinic.owner.Owner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of {@link PersonUtil#existsWithFullName}, the in-memory duplicate check
+ * the owner and vet forms used before the check moved to the database, for a new person
+ * (no match, so every person is compared) and for an update, which first removes the
+ * original person from a copy of the list. The copy is part of the measured time, as it
+ * was for the callers. Names come from a fixed seed, so runs are comparable.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonUtilBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	private int personCount;
+
+	private List<Owner> persons;
+
+	private Owner newPerson;
+
+	private Owner existingPerson;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		persons = new ArrayList<>(personCount);
+		for (int i = 0; i < personCount; i++) {
+			persons.add(owner("First" + random.nextInt(1_000), "Last" + i));
+		}
+		newPerson = owner("Nobody", "Known");
+		existingPerson = persons.get(personCount / 2);
+	}
+
+	private static Owner owner(String firstName, String lastName) {
+		Owner owner = new Owner();
+		owner.setFirstName(firstName);
+		owner.setLastName(lastName);
+		return owner;
+	}
+
+	@Benchmark
+	public boolean create() {
+		return PersonUtil.existsWithFullName(newPerson, null, persons);
+	}
+
+	@Benchmark
+	public boolean update() {
+		return PersonUtil.existsWithFullName(newPerson, existingPerson, new ArrayList<>(persons));
+	}
+
+}
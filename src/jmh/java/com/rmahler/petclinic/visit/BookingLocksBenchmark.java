@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH model of 64 clients booking out a calendar of 6 vets over 20 days, with and
+ * without {@link BookingLocks}. It does not go through the service or a database: a
+ * booking is a check of a concurrent map, a 200&micro;s pause standing in for the insert
+ * transaction, and a <code>putIfAbsent</code> standing in for the unique (vet, day,
+ * slot) constraint. Each invocation books every slot once; the returned count is the
+ * number of simulated constraint violations, i.e. wasted transactions.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BookingLocksBenchmark {
+
+	private static final int CLIENTS = 64;
+
+	private static final int VETS = 6;
+
+	private static final int DAYS = 20;
+
+	private static final int SLOTS = VETS * DAYS * SlotOccupancy.LAST_SLOT;
+
+	private static final LocalDate START = LocalDate.of(2030, 1, 1);
+
+	// simulated cost of one insert transaction
+	private static final long TRANSACTION_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+	@Param({ "optimistic", "striped" })
+	private String strategy;
+
+	private BookingLocks locks;
+
+	private ExecutorService executor;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		locks = strategy.equals("striped") ? new BookingLocks(1024) : null;
+		executor = Executors.newFixedThreadPool(CLIENTS);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Benchmark
+	public int bookOutCalendar() throws Exception {
+		Map<String, Boolean> bookedSlots = new ConcurrentHashMap<>();
+		AtomicInteger booked = new AtomicInteger();
+		AtomicInteger violations = new AtomicInteger();
+		List<Future<?>> clients = new ArrayList<>();
+		for (int c = 0; c < CLIENTS; c++) {
+			clients.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (booked.get() < SLOTS) {
+					int vet = 1 + random.nextInt(VETS);
+					LocalDate day = START.plusDays(random.nextInt(DAYS));
+					int slot = SlotOccupancy.FIRST_SLOT + random.nextInt(SlotOccupancy.LAST_SLOT);
+					book(vet + "/" + day + "/" + slot, locks != null ? locks.lockFor(vet, day) : null, bookedSlots,
+							booked, violations);
+				}
+			}));
+		}
+		for (Future<?> client : clients) {
+			client.get(2, TimeUnit.MINUTES);
+		}
+		return violations.get();
+	}
+
+	private static void book(String key, Lock lock, Map<String, Boolean> bookedSlots, AtomicInteger booked,
+			AtomicInteger violations) {
+		if (lock != null) {
+			lock.lock();
+		}
+		try {
+			if (bookedSlots.containsKey(key)) {
+				return; // detected before writing
+			}
+			LockSupport.parkNanos(TRANSACTION_NANOS);
+			if (bookedSlots.putIfAbsent(key, Boolean.TRUE) == null) {
+				booked.incrementAndGet();
+			}
+			else {
+				violations.incrementAndGet();
+			}
+		}
+		finally {
+			if (lock != null) {
+				lock.unlock();
+			}
+		}
+	}
+
+}
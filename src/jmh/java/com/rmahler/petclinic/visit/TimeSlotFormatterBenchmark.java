@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH comparison of the slot availability check: the bitmask and shared descriptors of
+ * {@link SlotOccupancy} against the previous boxed <code>List&lt;Integer&gt;</code> path
+ * that formatted a new {@link TimeSlot} description per free slot, for an empty day,
+ * a typical day (3 of 9 slots booked) and a fully booked day. Also covers
+ * {@link TimeSlotFormatter#getTimeSlotDescription} for every slot of a day. Run with
+ * <code>-prof gc</code> to compare allocation rates.
+ *
+ * @author Richard Mahler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSlotFormatterBenchmark {
+
+	// booked in this order, so a typical day has a morning, noon and afternoon slot taken
+	private static final int[] BOOKING_ORDER = { 2, 5, 7, 1, 9, 3, 6, 4, 8 };
+
+	@Param({ "0", "3", "9" })
+	private int filledSlotCount;
+
+	private List<Integer> filledSlots;
+
+	private SlotOccupancy occupancy;
+
+	@Setup
+	public void setup() {
+		filledSlots = new ArrayList<>();
+		for (int i = 0; i < filledSlotCount; i++) {
+			filledSlots.add(BOOKING_ORDER[i]);
+		}
+		occupancy = SlotOccupancy.of(filledSlots);
+	}
+
+	@Benchmark
+	public List<TimeSlot> bitmask() {
+		return TimeSlotFormatter.getAvailableSlots(occupancy);
+	}
+
+	@Benchmark
+	public List<TimeSlot> bitmaskIncludingConversion() {
+		return TimeSlotFormatter.getAvailableSlots(filledSlots);
+	}
+
+	@Benchmark
+	public void descriptions(Blackhole blackhole) {
+		for (int slot = SlotOccupancy.FIRST_SLOT; slot <= SlotOccupancy.LAST_SLOT; slot++) {
+			blackhole.consume(TimeSlotFormatter.getTimeSlotDescription(slot));
+		}
+	}
+
+	@Benchmark
+	public List<TimeSlot> boxedList() {
+		// the previous implementation
+		List<TimeSlot> slots = new ArrayList<>();
+		for (Integer i = 1; i < 10; i++) {
+			if (!filledSlots.contains(i)) {
+				slots.add(new TimeSlot(i, formatDescription(i)));
+			}
+		}
+		return slots;
+	}
+
+	private static String formatDescription(int ts) {
+		if (ts <= 4) {
+			return String.format("%d AM to %d AM", (7 + ts), (8 + ts));
+		}
+		else if (ts == 5) {
+			return String.format("12 AM to 1 PM");
+		}
+		else {
+			return String.format("%d PM to %d PM", (ts - 5), (ts - 4));
+		}
+	}
+
+}
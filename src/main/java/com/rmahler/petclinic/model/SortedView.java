@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted, unmodifiable view of an entity's collection, computed on first access with
+ * the entity's comparator for that collection and reused until the owning entity calls
+ * {@link #invalidate()} from its mutators. The view is also recomputed if the backing
+ * collection was replaced or changed size, which covers collections initialized or
+ * swapped by the persistence provider, and if it is no longer in comparator order, which
+ * covers elements whose sort key was changed through a setter, such as a renamed pet or
+ * a moved visit. Checking the order costs one comparison per element and allocates
+ * nothing.
+ * <p>
+ * Safe for entities shared between threads: the view and the collection it was computed
+ * from are published together.
+ * </p>
+ *
+ * @param <T> the element type
+ * @author Richard Mahler
+ */
+public final class SortedView<T> implements Serializable {
+
+	private transient volatile Sorted<T> sorted;
+
+	/**
+	 * @param source the backing collection
+	 * @param comparator the order of the view, always the same for a given view
+	 * @return the elements of <code>source</code> in comparator order
+	 */
+	public List<T> of(Collection<T> source, Comparator<? super T> comparator) {
+		Sorted<T> current = this.sorted;
+		if (current == null || current.source != source || current.size != source.size()
+				|| !isSorted(current.elements, comparator)) {
+			List<T> elements = new ArrayList<>(source);
+			elements.sort(comparator);
+			current = new Sorted<>(source, Collections.unmodifiableList(elements));
+			this.sorted = current;
+		}
+		return current.elements;
+	}
+
+	public void invalidate() {
+		this.sorted = null;
+	}
+
+	private static <T> boolean isSorted(List<T> elements, Comparator<? super T> comparator) {
+		for (int i = 1; i < elements.size(); i++) {
+			if (comparator.compare(elements.get(i - 1), elements.get(i)) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final class Sorted<T> {
+
+		private final Collection<T> source;
+
+		private final int size;
+
+		private final List<T> elements;
+
+		private Sorted(Collection<T> source, List<T> elements) {
+			this.source = source;
+			this.size = elements.size();
+			this.elements = elements;
+		}
+
+	}
+
+}
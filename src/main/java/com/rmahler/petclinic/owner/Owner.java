@@ -15,7 +15,7 @@
  */
 package com.rmahler.petclinic.owner;
 
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -25,16 +25,17 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
 
 import com.rmahler.petclinic.model.Person;
+import com.rmahler.petclinic.model.SortedView;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.core.style.ToStringCreator;
 import com.rmahler.petclinic.pet.Pet;
 
@@ -66,9 +67,17 @@ public class Owner extends Person {
 	@Digits(fraction = 0, integer = 10)
 	private String telephone;
 
+	private static final Comparator<Pet> PET_ORDER = Comparator.comparing(Pet::getName,
+			Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
 	@OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
 	private Set<Pet> pets;
 
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final SortedView<Pet> sortedPets = new SortedView<>();
+
 	protected Set<Pet> getPetsInternal() {
 		if (this.pets == null) {
 			this.pets = new HashSet<>();
@@ -78,17 +87,21 @@ public class Owner extends Person {
 
 	protected void setPetsInternal(Set<Pet> pets) {
 		this.pets = pets;
+		this.sortedPets.invalidate();
 	}
 
+	/**
+	 * @return the pets sorted by name, as an unmodifiable list shared until a pet is
+	 * added
+	 */
 	public List<Pet> getPets() {
-		List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-		PropertyComparator.sort(sortedPets, new MutableSortDefinition("name", true, true));
-		return sortedPets;
+		return sortedPets.of(getPetsInternal(), PET_ORDER);
 	}
 
 	public void addPet(Pet pet) {
 		if (pet.isNew()) {
 			getPetsInternal().add(pet);
+			sortedPets.invalidate();
 		}
 		pet.setOwner(this);
 	}
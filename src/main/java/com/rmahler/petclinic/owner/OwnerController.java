@@ -16,18 +16,19 @@
 package com.rmahler.petclinic.owner;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.service.ClinicService;
-import com.rmahler.petclinic.util.PersonUtil;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -42,6 +43,12 @@ class OwnerController {
 
 	private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
 
+	private static final int DEFAULT_PAGE_SIZE = 20;
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private static final int MAX_TYPEAHEAD_RESULTS = 10;
+
 	private final ClinicService clinicService;
 
 	@Autowired
@@ -94,14 +101,8 @@ class OwnerController {
 	}
 
 	private boolean ownerFullNameExists(Owner owner, int existingId, BindingResult result) {
-		Owner originalOwner = null;
-		if (existingId != -1) {
-			originalOwner = clinicService.findOwnerById(existingId);
-		}
-		Collection<Owner> ownersByLastName = clinicService.findOwnerByLastName(owner.getLastName());
-
-		boolean existsWithSameName = PersonUtil.existsWithFullName(owner, originalOwner, ownersByLastName);
-
+		boolean existsWithSameName = clinicService.ownerExistsWithFullName(owner.getFirstName(), owner.getLastName(),
+				existingId);
 		if (existsWithSameName) {
 			result.rejectValue("lastName", "duplicate_full_name", "already exists");
 		}
@@ -115,32 +116,69 @@ class OwnerController {
 	}
 
 	@GetMapping("/owners")
-	public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+	public String processFindForm(Owner owner, BindingResult result,
+			@RequestParam(value = "afterLastName", required = false) String afterLastName,
+			@RequestParam(value = "afterId", defaultValue = "0") int afterId,
+			@RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size, Map<String, Object> model) {
 
 		// allow parameterless GET request for /owners to return all records
 		if (owner.getLastName() == null) {
 			owner.setLastName(""); // empty string signifies broadest possible search
 		}
+		// names are stored trimmed, and the index and the query get the same prefix
+		owner.setLastName(owner.getLastName().trim());
+		boolean firstPage = afterLastName == null;
+		if (firstPage) {
+			afterLastName = "";
+		}
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+		// the in-memory directory answers "exactly one" without a query
+		if (firstPage) {
+			Collection<Integer> indexed = this.clinicService.findOwnerIdsByLastNamePrefix(owner.getLastName(), 2);
+			if (indexed.size() == 1) {
+				return "redirect:/owners/" + indexed.iterator().next();
+			}
+		}
 
-		// find owners by last name
-		Collection<Owner> results = this.clinicService.findOwnerByLastName(owner.getLastName());
-		if (results.isEmpty()) {
+		// find one page of owners by last name, fetching one extra row to detect a next
+		// page
+		List<OwnerSummary> results = this.clinicService.findOwnerPageByLastName(owner.getLastName(), afterLastName,
+				afterId, pageSize + 1);
+		if (results.isEmpty() && firstPage) {
 			// no owners found
 			result.rejectValue("lastName", "notFound", "not found");
 			return "owners/findOwners";
 		}
-		else if (results.size() == 1) {
+		else if (results.size() == 1 && firstPage) {
 			// 1 owner found
-			owner = results.iterator().next();
-			return "redirect:/owners/" + owner.getId();
+			return "redirect:/owners/" + results.get(0).getId();
 		}
 		else {
 			// multiple owners found
-			model.put("selections", results);
+			boolean hasNext = results.size() > pageSize;
+			List<OwnerSummary> page = hasNext ? results.subList(0, pageSize) : results;
+			model.put("selections", page);
+			model.put("pageSize", pageSize);
+			if (hasNext) {
+				OwnerSummary last = page.get(page.size() - 1);
+				model.put("nextLastName", last.getLastName());
+				model.put("nextId", last.getId());
+			}
 			return "owners/ownersList";
 		}
 	}
 
+	/**
+	 * Typeahead for the find owner form.
+	 * @param prefix the last name prefix typed so far
+	 * @return up to 10 distinct last names starting with the prefix
+	 */
+	@GetMapping(value = "/owners/lastNames", produces = "application/json")
+	public @ResponseBody List<String> findLastNames(@RequestParam("prefix") String prefix) {
+		return this.clinicService.findOwnerLastNamesByPrefix(prefix, MAX_TYPEAHEAD_RESULTS);
+	}
+
 	/**
 	 * Custom handler for displaying an owner.
 	 * @param ownerId the ID of the owner to display
@@ -149,13 +187,12 @@ class OwnerController {
 	@GetMapping("/owners/{ownerId}")
 	public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, Map<String, Object> model) {
 		ModelAndView mav = new ModelAndView("owners/ownerDetails");
-		Owner owner = this.clinicService.findOwnerById(ownerId);
-
-		for (Pet pet : owner.getPets()) {
-			pet.setVisitsInternal(this.clinicService.findVisitsByPetId(pet.getId()));
+		OwnerDetails owner = this.clinicService.findOwnerDetails(ownerId);
+		if (owner == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Owner " + ownerId + " not found");
 		}
 		model.put("pets", owner.getPets());
-		mav.addObject(owner);
+		mav.addObject("owner", owner);
 		return mav;
 	}
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.owner;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.rmahler.petclinic.pet.Pet;
+import com.rmahler.petclinic.visit.Visit;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read-only, denormalized view of the owner details page: the owner, their pets sorted
+ * by name and each pet's visits, most recent first, with the time slot descriptions
+ * already resolved. It holds no entity references, so it can be cached outside the heap
+ * and shared between requests.
+ *
+ * @author Richard Mahler
+ */
+@Getter
+@ToString
+public class OwnerDetails implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Integer id;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	private final String address;
+
+	private final String city;
+
+	private final String telephone;
+
+	private final List<PetDetails> pets;
+
+	private OwnerDetails(Owner owner, List<PetDetails> pets) {
+		this.id = owner.getId();
+		this.firstName = owner.getFirstName();
+		this.lastName = owner.getLastName();
+		this.address = owner.getAddress();
+		this.city = owner.getCity();
+		this.telephone = owner.getTelephone();
+		this.pets = Collections.unmodifiableList(pets);
+	}
+
+	/**
+	 * Build the details of an owner.
+	 * @param owner the owner, with their pets
+	 * @param visitsByPetId the visits of the owner's pets, pets without an entry have no
+	 * visits
+	 * @return the details
+	 */
+	public static OwnerDetails of(Owner owner, Map<Integer, List<Visit>> visitsByPetId) {
+		List<PetDetails> pets = new ArrayList<>();
+		for (Pet pet : owner.getPets()) {
+			pet.setVisitsInternal(visitsByPetId.getOrDefault(pet.getId(), Collections.emptyList()));
+			pets.add(new PetDetails(pet));
+		}
+		return new OwnerDetails(owner, pets);
+	}
+
+	@Getter
+	@ToString
+	public static class PetDetails implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Integer id;
+
+		private final String name;
+
+		private final LocalDate birthDate;
+
+		private final String type;
+
+		private final List<VisitDetails> visits;
+
+		private PetDetails(Pet pet) {
+			this.id = pet.getId();
+			this.name = pet.getName();
+			this.birthDate = pet.getBirthDate();
+			this.type = pet.getType() != null ? pet.getType().getName() : null;
+			this.visits = Collections.unmodifiableList(visitDetails(pet.getVisits()));
+		}
+
+		private static List<VisitDetails> visitDetails(Collection<Visit> visits) {
+			List<VisitDetails> details = new ArrayList<>(visits.size());
+			for (Visit visit : visits) {
+				details.add(new VisitDetails(visit));
+			}
+			return details;
+		}
+
+	}
+
+	@Getter
+	@ToString
+	public static class VisitDetails implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Integer id;
+
+		private final LocalDate date;
+
+		private final String description;
+
+		private final String timeSlotDescription;
+
+		private VisitDetails(Visit visit) {
+			this.id = visit.getId();
+			this.date = visit.getDate();
+			this.description = visit.getDescription();
+			this.timeSlotDescription = visit.getTimeSlotDescription();
+		}
+
+		/**
+		 * @return true if the visit is still to come and can be cancelled; evaluated on
+		 * each call since cached details outlive the day they were built
+		 */
+		public boolean isCurrent() {
+			return date != null && date.isAfter(LocalDate.now());
+		}
+
+	}
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory index of owner last names used for prefix searches and typeahead. Last
+ * names are normalized (trimmed, lower case) and kept in a sorted map, each one mapped to
+ * a sorted primitive array of owner ids, so no entity references are retained.
+ * <p>
+ * The index is safe for concurrent use: reads never block and each update replaces the
+ * id array of a single name atomically.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public class OwnerDirectoryIndex {
+
+	// rough per-object sizes on a 64 bit JVM with compressed oops
+	private static final int MAP_ENTRY_BYTES = 48;
+
+	private static final int STRING_BYTES = 40;
+
+	private static final int ARRAY_HEADER_BYTES = 16;
+
+	private static final int[] NO_IDS = new int[0];
+
+	private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+	private final AtomicInteger ownerCount = new AtomicInteger();
+
+	private volatile boolean ready;
+
+	/**
+	 * Add an owner to the index.
+	 * @param lastName the owner's last name
+	 * @param ownerId the owner's id
+	 */
+	public void add(String lastName, int ownerId) {
+		if (lastName == null) {
+			return;
+		}
+		// the map may call the function more than once, so it only records the entry it
+		// was given; the count changes once, if the returned entry is a new one
+		Entry[] seen = new Entry[1];
+		Entry updated = entries.compute(normalize(lastName), (k, entry) -> {
+			seen[0] = entry;
+			if (entry == null) {
+				return new Entry(lastName.trim(), new int[] { ownerId });
+			}
+			int pos = Arrays.binarySearch(entry.ownerIds, ownerId);
+			if (pos >= 0) {
+				return entry;
+			}
+			int insertAt = -pos - 1;
+			int[] ids = new int[entry.ownerIds.length + 1];
+			System.arraycopy(entry.ownerIds, 0, ids, 0, insertAt);
+			ids[insertAt] = ownerId;
+			System.arraycopy(entry.ownerIds, insertAt, ids, insertAt + 1, entry.ownerIds.length - insertAt);
+			return new Entry(entry.displayName, ids);
+		});
+		if (updated != seen[0]) {
+			ownerCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Remove an owner from the index.
+	 * @param lastName the last name the owner was indexed under
+	 * @param ownerId the owner's id
+	 */
+	public void remove(String lastName, int ownerId) {
+		if (lastName == null) {
+			return;
+		}
+		Entry[] seen = new Entry[1];
+		Entry updated = entries.computeIfPresent(normalize(lastName), (k, entry) -> {
+			seen[0] = entry;
+			int pos = Arrays.binarySearch(entry.ownerIds, ownerId);
+			if (pos < 0) {
+				return entry;
+			}
+			if (entry.ownerIds.length == 1) {
+				return null;
+			}
+			int[] ids = new int[entry.ownerIds.length - 1];
+			System.arraycopy(entry.ownerIds, 0, ids, 0, pos);
+			System.arraycopy(entry.ownerIds, pos + 1, ids, pos, ids.length - pos);
+			return new Entry(entry.displayName, ids);
+		});
+		if (seen[0] != null && updated != seen[0]) {
+			ownerCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Return the ids of the owners whose last name starts with the given prefix, ordered
+	 * by last name and id.
+	 * @param prefix the last name prefix, an empty String matches every owner
+	 * @param maxResults maximum number of ids to return
+	 * @return the matching owner ids (or an empty array if none found)
+	 */
+	public int[] findOwnerIds(String prefix, int maxResults) {
+		return collectOwnerIds(prefix, maxResults, null);
+	}
+
+	/**
+	 * Like {@link #findOwnerIds}, but only if each matching last name, as first entered,
+	 * also starts with the prefix in the same case. The ids are then those a
+	 * <code>LIKE</code> query would find whether the database compares last names with
+	 * or without case; otherwise none are returned. Only the names of the first
+	 * <code>maxResults</code> owners are checked.
+	 * @param prefix the last name prefix, without <code>LIKE</code> wildcards
+	 * @param maxResults maximum number of ids to return
+	 * @return the matching owner ids, or an empty array if none found or if a match
+	 * depends on case
+	 */
+	public int[] findOwnerIdsMatchingCase(String prefix, int maxResults) {
+		return collectOwnerIds(prefix, maxResults, prefix == null ? "" : prefix.trim());
+	}
+
+	private int[] collectOwnerIds(String prefix, int maxResults, String exactPrefix) {
+		// sized from the map rather than the count, which may lag behind concurrent adds
+		int[] result = NO_IDS;
+		int count = 0;
+		for (Entry entry : prefixView(prefix).values()) {
+			if (count == maxResults) {
+				break;
+			}
+			if (exactPrefix != null && !entry.displayName.startsWith(exactPrefix)) {
+				return NO_IDS;
+			}
+			int n = Math.min(entry.ownerIds.length, maxResults - count);
+			if (count + n > result.length) {
+				result = Arrays.copyOf(result, Math.min(maxResults, Math.max(count + n, 2 * result.length)));
+			}
+			System.arraycopy(entry.ownerIds, 0, result, count, n);
+			count += n;
+		}
+		return count == 0 ? NO_IDS : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Return the distinct last names starting with the given prefix, in alphabetical
+	 * order, as they were first entered.
+	 * @param prefix the last name prefix
+	 * @param maxResults maximum number of names to return
+	 * @return the matching last names
+	 */
+	public List<String> findLastNames(String prefix, int maxResults) {
+		List<String> names = new ArrayList<>();
+		for (Entry entry : prefixView(prefix).values()) {
+			if (names.size() == maxResults) {
+				break;
+			}
+			names.add(entry.displayName);
+		}
+		return names;
+	}
+
+	private ConcurrentNavigableMap<String, Entry> prefixView(String prefix) {
+		String key = prefix == null ? "" : normalize(prefix);
+		return entries.subMap(key, true, key + Character.MAX_VALUE, false);
+	}
+
+	public void markReady() {
+		this.ready = true;
+	}
+
+	/**
+	 * @return true once the index has been populated from the data store
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	public int getOwnerCount() {
+		return ownerCount.get();
+	}
+
+	/**
+	 * @return an estimate of the heap used by the index, in bytes
+	 */
+	public long getEstimatedSizeInBytes() {
+		long bytes = 0;
+		for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+			Entry entry = mapEntry.getValue();
+			bytes += MAP_ENTRY_BYTES + STRING_BYTES + mapEntry.getKey().length();
+			bytes += STRING_BYTES + entry.displayName.length();
+			bytes += ARRAY_HEADER_BYTES + 4L * entry.ownerIds.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return an estimate of the heap used by the index per indexed owner, in bytes
+	 */
+	public double getEstimatedBytesPerOwner() {
+		int owners = getOwnerCount();
+		return owners == 0 ? 0 : (double) getEstimatedSizeInBytes() / owners;
+	}
+
+	static String normalize(String lastName) {
+		return lastName.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static final class Entry {
+
+		private final String displayName;
+
+		private final int[] ownerIds;
+
+		private Entry(String displayName, int[] ownerIds) {
+			this.displayName = displayName;
+			this.ownerIds = ownerIds;
+		}
+
+	}
+
+}
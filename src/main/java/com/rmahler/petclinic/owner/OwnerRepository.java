@@ -16,7 +16,9 @@
 package com.rmahler.petclinic.owner;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
@@ -47,6 +49,37 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	@Transactional(readOnly = true)
 	Collection<Owner> findByLastName(@Param("lastName") String lastName);
 
+	/**
+	 * Retrieve one page of owners whose last name <i>starts</i> with the given name,
+	 * ordered by (last name, id), projected to {@link OwnerSummary} rows. The page starts
+	 * strictly after the given cursor, so the cost of a query depends on the page size
+	 * rather than on the number of matching owners. The summaries are not managed and
+	 * their pet names are left empty, see {@link #findPetNamesByOwnerIds}.
+	 * @param lastName Value to search for
+	 * @param afterLastName last name of the last owner of the previous page, or an empty
+	 * String for the first page
+	 * @param afterId id of the last owner of the previous page, or 0 for the first page
+	 * @param pageable limits the number of returned owners
+	 * @return a List of matching {@link OwnerSummary}s (or an empty List if none found)
+	 */
+	@Query("SELECT new com.rmahler.petclinic.owner.OwnerSummary(owner.id, owner.firstName, owner.lastName, "
+			+ "owner.address, owner.city, owner.telephone) FROM Owner owner WHERE owner.lastName LIKE :lastName% "
+			+ "AND (owner.lastName > :afterLastName OR (owner.lastName = :afterLastName AND owner.id > :afterId)) "
+			+ "ORDER BY owner.lastName, owner.id")
+	@Transactional(readOnly = true)
+	List<OwnerSummary> findSummaryPageByLastName(@Param("lastName") String lastName,
+			@Param("afterLastName") String afterLastName, @Param("afterId") Integer afterId, Pageable pageable);
+
+	/**
+	 * Retrieve the pet names of the given owners, ordered by owner and pet name.
+	 * @param ownerIds the owners to look up
+	 * @return a List of (ownerId, petName) pairs
+	 */
+	@Query("SELECT pet.owner.id, pet.name FROM Pet pet WHERE pet.owner.id IN :ownerIds "
+			+ "ORDER BY pet.owner.id, pet.name")
+	@Transactional(readOnly = true)
+	List<Object[]> findPetNamesByOwnerIds(@Param("ownerIds") Collection<Integer> ownerIds);
+
 	/**
 	 * Retrieve an {@link Owner} from the data store by id.
 	 * @param id the id to search for
@@ -56,6 +89,39 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 	@Transactional(readOnly = true)
 	Owner findById(@Param("id") Integer id);
 
+	/**
+	 * Retrieve the current last name of an {@link Owner} from the data store.
+	 * @param id the id to search for
+	 * @return the last name, or null if no such owner exists
+	 */
+	@Query("SELECT owner.lastName FROM Owner owner WHERE owner.id = :id")
+	@Transactional(readOnly = true)
+	String findLastNameById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve the id and last name of every {@link Owner}, used to populate the
+	 * {@link OwnerDirectoryIndex}.
+	 * @return a List of (id, lastName) pairs
+	 */
+	@Query("SELECT owner.id, owner.lastName FROM Owner owner")
+	@Transactional(readOnly = true)
+	List<Object[]> findAllIdsAndLastNames();
+
+	/**
+	 * Check whether another {@link Owner} has the given full name. Names are compared
+	 * under the column collation, which ignores case, using the (last name, first name)
+	 * index.
+	 * @param lastName the last name, already trimmed
+	 * @param firstName the first name, already trimmed
+	 * @param excludeId id of the owner being updated, or -1 for a new owner
+	 * @return true if such an owner exists
+	 */
+	@Query("SELECT CASE WHEN COUNT(owner) > 0 THEN true ELSE false END FROM Owner owner "
+			+ "WHERE owner.lastName = :lastName AND owner.firstName = :firstName AND owner.id <> :excludeId")
+	@Transactional(readOnly = true)
+	boolean existsByFullName(@Param("lastName") String lastName, @Param("firstName") String firstName,
+			@Param("excludeId") Integer excludeId);
+
 	/**
 	 * Save an {@link Owner} to the data store, either inserting or updating it.
 	 * @param owner the {@link Owner} to save
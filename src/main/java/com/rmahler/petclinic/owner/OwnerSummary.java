@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.owner;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Read-only row of the owners list: the columns shown for an owner plus the names of
+ * their pets. Built directly by a projection query, so no managed {@link Owner} or
+ * {@link com.rmahler.petclinic.pet.Pet} entities are involved.
+ *
+ * @author Richard Mahler
+ */
+@Getter
+@ToString
+public class OwnerSummary {
+
+	private final Integer id;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	private final String address;
+
+	private final String city;
+
+	private final String telephone;
+
+	/**
+	 * Pet names in alphabetical order, filled in after the owner rows are loaded.
+	 */
+	@Setter
+	private List<String> petNames = Collections.emptyList();
+
+	public OwnerSummary(Integer id, String firstName, String lastName, String address, String city,
+			String telephone) {
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.address = address;
+		this.city = city;
+		this.telephone = telephone;
+	}
+
+}
@@ -16,13 +16,13 @@
 package com.rmahler.petclinic.pet;
 
 import com.rmahler.petclinic.model.NamedEntity;
+import com.rmahler.petclinic.model.SortedView;
 import com.rmahler.petclinic.owner.Owner;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
 import org.springframework.format.annotation.DateTimeFormat;
 import com.rmahler.petclinic.visit.Visit;
 
@@ -56,9 +56,18 @@ public class Pet extends NamedEntity {
 	@JoinColumn(name = "owner_id")
 	private Owner owner;
 
+	// most recent first, visits without a date before all others
+	private static final Comparator<Visit> VISIT_ORDER = Comparator
+			.comparing(Visit::getDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())).reversed();
+
 	@Transient
 	private Set<Visit> visits = new LinkedHashSet<>();
 
+	@Transient
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final SortedView<Visit> sortedVisits = new SortedView<>();
+
 	protected Set<Visit> getVisitsInternal() {
 		if (this.visits == null) {
 			this.visits = new HashSet<>();
@@ -68,17 +77,22 @@ public class Pet extends NamedEntity {
 
 	public void setVisitsInternal(Collection<Visit> visits) {
 		this.visits = new LinkedHashSet<>(visits);
+		this.sortedVisits.invalidate();
 	}
 
+	/**
+	 * @return the visits, most recent first, as an unmodifiable list shared until a visit
+	 * is added
+	 */
 	public List<Visit> getVisits() {
-		List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-		PropertyComparator.sort(sortedVisits, new MutableSortDefinition("date", false, false));
-		return Collections.unmodifiableList(sortedVisits);
+		return sortedVisits.of(getVisitsInternal(), VISIT_ORDER);
 	}
 
 	public void addVisit(Visit visit) {
 		getVisitsInternal().add(visit);
+		sortedVisits.invalidate();
 		visit.setPetId(this.getId());
+		visit.assignOwnerId(this.owner != null ? this.owner.getId() : null);
 	}
 
 	@Override
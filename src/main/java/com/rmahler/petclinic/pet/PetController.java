@@ -18,6 +18,7 @@ package com.rmahler.petclinic.pet;
 import com.rmahler.petclinic.owner.Owner;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.service.RequestIdentityMap;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.validation.BindingResult;
@@ -26,6 +27,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -42,9 +44,12 @@ class PetController {
 
 	private final ClinicService clinicService;
 
+	private final RequestIdentityMap identityMap;
+
 	@Autowired
-	public PetController(ClinicService clinicService) {
+	public PetController(ClinicService clinicService, RequestIdentityMap identityMap) {
 		this.clinicService = clinicService;
+		this.identityMap = identityMap;
 	}
 
 	@ModelAttribute("types")
@@ -54,7 +59,7 @@ class PetController {
 
 	@ModelAttribute("owner")
 	public Owner findOwner(@PathVariable("ownerId") int ownerId) {
-		return clinicService.findOwnerById(ownerId);
+		return identityMap.findOwnerById(ownerId);
 	}
 
 	@InitBinder("owner")
@@ -82,7 +87,7 @@ class PetController {
 
 	@GetMapping("/pets/{petId}/edit")
 	public String initUpdateForm(@PathVariable("petId") int petId, ModelMap model) {
-		Pet pet = clinicService.findPetById(petId);
+		Pet pet = identityMap.findPetById(petId);
 		model.put("pet", pet);
 		return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
 	}
@@ -108,9 +113,9 @@ class PetController {
 	private boolean petNameExists(Owner owner, Pet pet, int existingId, BindingResult result) {
 		Pet originalPet = null;
 		if (existingId != -1) {
-			originalPet = clinicService.findPetById(existingId);
+			originalPet = identityMap.findPetById(existingId);
 		}
-		Collection<Pet> allPets = owner.getPets();
+		Collection<Pet> allPets = new ArrayList<>(owner.getPets());
 		if (originalPet != null) {
 			allPets.remove(originalPet);
 		}
@@ -17,8 +17,12 @@ package com.rmahler.petclinic.pet;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -40,6 +44,7 @@ public interface PetRepository extends Repository<Pet, Integer> {
 	 * @return a Collection of {@link PetType}s.
 	 */
 	@Query("SELECT ptype FROM PetType ptype ORDER BY ptype.name")
+	@QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
 	@Transactional(readOnly = true)
 	List<PetType> findPetTypes();
 
@@ -55,6 +60,15 @@ public interface PetRepository extends Repository<Pet, Integer> {
 
 	List<Pet> findByOwnerId(Integer ownerId);
 
+	/**
+	 * Retrieve the id of the owner of a {@link Pet}.
+	 * @param id the pet's id
+	 * @return the owner's id, or null if there is no such pet
+	 */
+	@Query("SELECT pet.owner.id FROM Pet pet WHERE pet.id = :id")
+	@Transactional(readOnly = true)
+	Integer findOwnerIdById(@Param("id") Integer id);
+
 	/**
 	 * Save a {@link Pet} to the data store, either inserting or updating it.
 	 * @param pet the {@link Pet} to save
@@ -19,12 +19,15 @@ import javax.persistence.Entity;
 import javax.persistence.Table;
 
 import com.rmahler.petclinic.model.NamedEntity;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * @author Richard Mahler
  * @author Juergen Hoeller Can be Cat, Dog, Hamster...
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "types")
 public class PetType extends NamedEntity {
 
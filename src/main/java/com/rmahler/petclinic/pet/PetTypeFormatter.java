@@ -16,10 +16,15 @@
 package com.rmahler.petclinic.pet;
 
 import java.text.ParseException;
-import java.util.Collection;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.Formatter;
 import org.springframework.stereotype.Component;
 
@@ -28,6 +33,12 @@ import org.springframework.stereotype.Component;
  * from Spring 3.0, Formatters have come as an improvement in comparison to legacy
  * PropertyEditors. See the following links for more details: - The Spring ref doc:
  * https://docs.spring.io/spring-framework/docs/current/spring-framework-reference/core.html#format
+ * <p>
+ * Pet types are resolved from an immutable name to {@link PetType} map, so binding a pet
+ * form does not query the database. The map is reloaded on the first parse once it is
+ * older than the refresh interval, which picks up added and renamed types; an unknown
+ * name is rejected without a reload while the map is younger.
+ * </p>
  *
  * @author Richard Mahler
  * @author Mark Fisher
@@ -39,9 +50,24 @@ public class PetTypeFormatter implements Formatter<PetType> {
 
 	private final PetRepository pets;
 
+	private final long refreshIntervalMillis;
+
+	private final Clock clock;
+
+	private volatile Map<String, PetType> petTypesByName;
+
+	private volatile long loadedAt;
+
 	@Autowired
-	public PetTypeFormatter(PetRepository pets) {
+	public PetTypeFormatter(PetRepository pets,
+			@Value("${petclinic.pet-types.refresh-interval:1m}") Duration refreshInterval) {
+		this(pets, refreshInterval, Clock.systemUTC());
+	}
+
+	PetTypeFormatter(PetRepository pets, Duration refreshInterval, Clock clock) {
 		this.pets = pets;
+		this.refreshIntervalMillis = refreshInterval.toMillis();
+		this.clock = clock;
 	}
 
 	@Override
@@ -51,13 +77,39 @@ public class PetTypeFormatter implements Formatter<PetType> {
 
 	@Override
 	public PetType parse(String text, Locale locale) throws ParseException {
-		Collection<PetType> findPetTypes = this.pets.findPetTypes();
-		for (PetType type : findPetTypes) {
-			if (type.getName().equals(text)) {
-				return type;
-			}
+		Map<String, PetType> byName = this.petTypesByName;
+		PetType type = byName != null ? byName.get(text) : null;
+		if (type == null || isStale()) {
+			// not loaded yet, or types may have been added or renamed since the last load
+			type = refreshIfStale().get(text);
+		}
+		if (type == null) {
+			throw new ParseException("type not found: " + text, 0);
+		}
+		return type;
+	}
+
+	private boolean isStale() {
+		return this.petTypesByName == null || this.clock.millis() - this.loadedAt >= this.refreshIntervalMillis;
+	}
+
+	private synchronized Map<String, PetType> refreshIfStale() {
+		// another caller may have reloaded while this one waited for the lock
+		return isStale() ? refresh() : this.petTypesByName;
+	}
+
+	/**
+	 * Reload the pet types from the data store.
+	 * @return an immutable map from pet type name to {@link PetType}
+	 */
+	public synchronized Map<String, PetType> refresh() {
+		Map<String, PetType> byName = new HashMap<>();
+		for (PetType type : this.pets.findPetTypes()) {
+			byName.put(type.getName(), type);
 		}
-		throw new ParseException("type not found: " + text, 0);
+		this.loadedAt = this.clock.millis();
+		this.petTypesByName = Collections.unmodifiableMap(byName);
+		return this.petTypesByName;
 	}
 
 }
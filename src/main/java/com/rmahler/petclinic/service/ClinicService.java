@@ -16,15 +16,22 @@
 package com.rmahler.petclinic.service;
 
 import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.owner.OwnerDetails;
+import com.rmahler.petclinic.owner.OwnerSummary;
 import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.pet.PetType;
 import com.rmahler.petclinic.vet.Specialty;
 import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetDirectory;
+import com.rmahler.petclinic.visit.BookingResult;
+import com.rmahler.petclinic.visit.SlotOccupancy;
 import com.rmahler.petclinic.visit.Visit;
 import org.springframework.dao.DataAccessException;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Facade interface for the controllers
@@ -36,10 +43,21 @@ public interface ClinicService {
 	// owners
 	Owner findOwnerById(int id) throws DataAccessException;
 
+	OwnerDetails findOwnerDetails(int ownerId) throws DataAccessException;
+
 	void saveOwner(Owner owner) throws DataAccessException;
 
 	Collection<Owner> findOwnerByLastName(String lastName) throws DataAccessException;
 
+	List<OwnerSummary> findOwnerPageByLastName(String lastName, String afterLastName, int afterId, int maxResults)
+			throws DataAccessException;
+
+	Collection<Integer> findOwnerIdsByLastNamePrefix(String lastNamePrefix, int maxResults);
+
+	List<String> findOwnerLastNamesByPrefix(String lastNamePrefix, int maxResults);
+
+	boolean ownerExistsWithFullName(String firstName, String lastName, int excludeId) throws DataAccessException;
+
 	// pets
 	Pet findPetById(int id) throws DataAccessException;
 
@@ -50,21 +68,42 @@ public interface ClinicService {
 	// vets
 	Collection<Vet> findVets() throws DataAccessException;
 
+	VetDirectory getVetDirectory() throws DataAccessException;
+
 	Vet findVetById(int id) throws DataAccessException;
 
+	Vet findVetWithSpecialtiesById(int id) throws DataAccessException;
+
 	Collection<Specialty> getVetSpecialties() throws DataAccessException;
 
 	void saveVet(Vet vet) throws DataAccessException;
 
+	boolean vetExistsWithFullName(String firstName, String lastName, int excludeId) throws DataAccessException;
+
 	// visits
 	Collection<Integer> findFilledSlots(int vetId, LocalDate day);
 
+	SlotOccupancy findSlotOccupancy(int vetId, LocalDate day);
+
+	SlotOccupancy findSlotAvailability(int vetId, LocalDate day, String holder);
+
+	boolean holdSlot(int vetId, LocalDate day, int slot, String holder);
+
+	void releaseSlotHolds(String holder);
+
+	Map<Integer, Map<LocalDate, SlotOccupancy>> findSlotOccupancies(Collection<Integer> vetIds, LocalDate from,
+			LocalDate to);
+
 	void cancelVisit(int visitId);
 
 	Collection<Visit> findVisitsByPetId(int petId);
 
+	Map<Integer, List<Visit>> findVisitsByPetIds(Collection<Integer> petIds);
+
 	void saveVisit(Visit visit) throws DataAccessException;
 
+	BookingResult bookVisit(Visit visit, String holder) throws DataAccessException;
+
 	Visit findVisitById(int visitId);
 
 }
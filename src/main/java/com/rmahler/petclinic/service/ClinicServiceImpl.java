@@ -16,22 +16,54 @@
 package com.rmahler.petclinic.service;
 
 import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.owner.OwnerDetails;
+import com.rmahler.petclinic.owner.OwnerDirectoryIndex;
 import com.rmahler.petclinic.owner.OwnerRepository;
+import com.rmahler.petclinic.owner.OwnerSummary;
 import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.pet.PetRepository;
 import com.rmahler.petclinic.pet.PetType;
 import com.rmahler.petclinic.vet.Specialty;
 import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetDirectory;
 import com.rmahler.petclinic.vet.VetRepository;
+import com.rmahler.petclinic.visit.BookingLocks;
+import com.rmahler.petclinic.visit.BookingResult;
+import com.rmahler.petclinic.visit.SlotHolds;
+import com.rmahler.petclinic.visit.SlotOccupancy;
+import com.rmahler.petclinic.visit.SlotOccupancyCache;
 import com.rmahler.petclinic.visit.Visit;
 import com.rmahler.petclinic.visit.VisitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Facade interface implementation for the rest controllers
@@ -41,6 +73,8 @@ import java.util.Collection;
 @Service
 public class ClinicServiceImpl implements ClinicService {
 
+	private static final Logger logger = LoggerFactory.getLogger(ClinicServiceImpl.class);
+
 	private PetRepository petRepository;
 
 	private VetRepository vetRepository;
@@ -49,13 +83,79 @@ public class ClinicServiceImpl implements ClinicService {
 
 	private VisitRepository visitRepository;
 
+	private final OwnerDirectoryIndex ownerDirectoryIndex;
+
+	private final SlotOccupancyCache slotOccupancyCache;
+
+	private final BookingLocks bookingLocks = new BookingLocks(1024);
+
+	private volatile VetDirectory vetDirectory;
+
+	private long vetDirectoryVersion;
+
+	// bound to a transaction that saved a vet, see getVetDirectory
+	private final Object vetDirectoryChange = new Object();
+
+	private final SlotHolds slotHolds = new SlotHolds(Duration.ofMinutes(5), 10_000,
+			Clock.systemDefaultZone());
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final TransactionTemplate readOnlyTransactionTemplate;
+
+	// null when caching is not configured, owner details are then loaded on each request
+	private final Cache ownerDetailsCache;
+
+	// bumped when a write to an owner completes, striped by owner id; see findOwnerDetails
+	private final AtomicLongArray ownerDetailsGenerations = new AtomicLongArray(1024);
+
+	/**
+	 * Create a service with its own owner index and slot occupancy cache.
+	 */
+	public ClinicServiceImpl(PetRepository petRepository, VetRepository vetRepository, OwnerRepository ownerRepository,
+			VisitRepository visitRepository, PlatformTransactionManager transactionManager,
+			ObjectProvider<CacheManager> cacheManager) {
+		this(petRepository, vetRepository, ownerRepository, visitRepository, transactionManager, cacheManager,
+				new OwnerDirectoryIndex(), newSlotOccupancyCache());
+	}
+
+	/**
+	 * Create a service using the owner index and slot occupancy cache defined in the
+	 * context, so that their meters can be published, or its own ones if there are none.
+	 */
 	@Autowired
 	public ClinicServiceImpl(PetRepository petRepository, VetRepository vetRepository, OwnerRepository ownerRepository,
-			VisitRepository visitRepository) {
+			VisitRepository visitRepository, PlatformTransactionManager transactionManager,
+			ObjectProvider<CacheManager> cacheManager, ObjectProvider<OwnerDirectoryIndex> ownerDirectoryIndex,
+			ObjectProvider<SlotOccupancyCache> slotOccupancyCache) {
+		this(petRepository, vetRepository, ownerRepository, visitRepository, transactionManager, cacheManager,
+				ownerDirectoryIndex.getIfAvailable(OwnerDirectoryIndex::new),
+				slotOccupancyCache.getIfAvailable(ClinicServiceImpl::newSlotOccupancyCache));
+	}
+
+	private ClinicServiceImpl(PetRepository petRepository, VetRepository vetRepository,
+			OwnerRepository ownerRepository, VisitRepository visitRepository,
+			PlatformTransactionManager transactionManager, ObjectProvider<CacheManager> cacheManager,
+			OwnerDirectoryIndex ownerDirectoryIndex, SlotOccupancyCache slotOccupancyCache) {
 		this.petRepository = petRepository;
 		this.vetRepository = vetRepository;
 		this.ownerRepository = ownerRepository;
 		this.visitRepository = visitRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTransactionTemplate.setReadOnly(true);
+		CacheManager manager = cacheManager.getIfAvailable();
+		this.ownerDetailsCache = manager != null ? manager.getCache("ownerDetails") : null;
+		this.ownerDirectoryIndex = ownerDirectoryIndex;
+		this.slotOccupancyCache = slotOccupancyCache;
+	}
+
+	/**
+	 * Create a slot occupancy cache sized for the clinic.
+	 */
+	public static SlotOccupancyCache newSlotOccupancyCache() {
+		// about 60 vets booked 90 days ahead; one hit in 100 is checked against the database
+		return new SlotOccupancyCache(5_000, 90, 100);
 	}
 
 	// owners
@@ -72,10 +172,156 @@ public class ClinicServiceImpl implements ClinicService {
 		return ownerRepository.findByLastName(lastName);
 	}
 
+	@Override
+	public boolean ownerExistsWithFullName(String firstName, String lastName, int excludeId)
+			throws DataAccessException {
+		return ownerRepository.existsByFullName(lastName, firstName, excludeId);
+	}
+
+	/**
+	 * Loads the page as flat {@link OwnerSummary} rows plus one query for the pet names
+	 * of the page, instead of managed owners with their pets. Nothing is added to the
+	 * persistence context, so there are no snapshots to dirty check.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<OwnerSummary> findOwnerPageByLastName(String lastName, String afterLastName, int afterId,
+			int maxResults) throws DataAccessException {
+		List<OwnerSummary> owners = ownerRepository.findSummaryPageByLastName(lastName, afterLastName, afterId,
+				PageRequest.of(0, maxResults));
+		if (owners.isEmpty()) {
+			return owners;
+		}
+		Map<Integer, OwnerSummary> byId = new HashMap<>();
+		owners.forEach(owner -> byId.put(owner.getId(), owner));
+		Map<Integer, List<String>> petNames = new HashMap<>();
+		for (Object[] row : ownerRepository.findPetNamesByOwnerIds(byId.keySet())) {
+			petNames.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+		}
+		petNames.forEach((ownerId, names) -> byId.get(ownerId).setPetNames(names));
+		return owners;
+	}
+
+	/**
+	 * Looks the prefix up in the in-memory {@link OwnerDirectoryIndex}, without touching
+	 * the database. Only ids the owner search query would find too, whatever the
+	 * collation of the last name column, are returned.
+	 * @return the matching owner ids, or an empty collection if there are none, if the
+	 * index has not been built yet, if the prefix contains <code>LIKE</code> wildcards or
+	 * if a match depends on case
+	 */
+	@Override
+	public Collection<Integer> findOwnerIdsByLastNamePrefix(String lastNamePrefix, int maxResults) {
+		String prefix = lastNamePrefix == null ? "" : lastNamePrefix;
+		if (!ownerDirectoryIndex.isReady() || prefix.indexOf('%') >= 0 || prefix.indexOf('_') >= 0) {
+			return Collections.emptyList();
+		}
+		int[] ids = ownerDirectoryIndex.findOwnerIdsMatchingCase(prefix, maxResults);
+		List<Integer> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(id);
+		}
+		return result;
+	}
+
+	@Override
+	public List<String> findOwnerLastNamesByPrefix(String lastNamePrefix, int maxResults) {
+		return ownerDirectoryIndex.findLastNames(lastNamePrefix, maxResults);
+	}
+
+	/**
+	 * Returns the cached read model of the owner, building it from the owner, their pets
+	 * and one query for all their visits on a miss. The cache is read outside of any
+	 * transaction, so a hit does not borrow a connection; only a miss is loaded in a
+	 * read-only transaction.
+	 * <p>
+	 * A write to the owner that completes while the details are built may not be part of
+	 * them. Such details are not cached: the owner's generation is read before loading
+	 * and checked again after the put, and the entry is evicted if it changed. A write
+	 * completing after that check evicts the entry itself, since its generation is
+	 * bumped before its eviction.
+	 * </p>
+	 * @return the details, or null if there is no such owner
+	 */
+	@Override
+	public OwnerDetails findOwnerDetails(int ownerId) throws DataAccessException {
+		if (ownerDetailsCache == null) {
+			return readOnlyTransactionTemplate.execute(status -> loadOwnerDetails(ownerId));
+		}
+		OwnerDetails cached = ownerDetailsCache.get(ownerId, OwnerDetails.class);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = ownerDetailsGeneration(ownerId);
+		OwnerDetails details = readOnlyTransactionTemplate.execute(status -> loadOwnerDetails(ownerId));
+		if (details != null && generation == ownerDetailsGeneration(ownerId)) {
+			ownerDetailsCache.put(ownerId, details);
+			if (generation != ownerDetailsGeneration(ownerId)) {
+				ownerDetailsCache.evict(ownerId);
+			}
+		}
+		return details;
+	}
+
+	private OwnerDetails loadOwnerDetails(int ownerId) {
+		Owner owner = ownerRepository.findById(ownerId);
+		if (owner == null) {
+			return null;
+		}
+		List<Integer> petIds = new ArrayList<>();
+		owner.getPets().forEach(pet -> petIds.add(pet.getId()));
+		return OwnerDetails.of(owner, findVisitsByPetIds(petIds));
+	}
+
+	/**
+	 * Drops the owner's details right away, so the saving transaction reads its own
+	 * change, and again once it completes, after bumping the owner's generation so that
+	 * details built concurrently from the data before the write are not cached, see
+	 * {@link #findOwnerDetails}.
+	 */
+	private void evictOwnerDetails(Integer ownerId) {
+		if (ownerDetailsCache == null || ownerId == null) {
+			return;
+		}
+		ownerDetailsCache.evict(ownerId);
+		afterCompletion(() -> {
+			ownerDetailsGenerations.incrementAndGet(ownerDetailsStripe(ownerId));
+			ownerDetailsCache.evict(ownerId);
+		});
+	}
+
+	private long ownerDetailsGeneration(int ownerId) {
+		return ownerDetailsGenerations.get(ownerDetailsStripe(ownerId));
+	}
+
+	private int ownerDetailsStripe(int ownerId) {
+		return Math.floorMod(ownerId, ownerDetailsGenerations.length());
+	}
+
 	@Override
 	@Transactional
 	public void saveOwner(Owner owner) throws DataAccessException {
+		String previousLastName = owner.isNew() ? null : ownerRepository.findLastNameById(owner.getId());
 		ownerRepository.save(owner);
+
+		int ownerId = owner.getId();
+		String lastName = owner.getLastName();
+		afterCommit(() -> {
+			ownerDirectoryIndex.remove(previousLastName, ownerId);
+			ownerDirectoryIndex.add(lastName, ownerId);
+		});
+		evictOwnerDetails(ownerId);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public void buildOwnerDirectoryIndex() {
+		for (Object[] row : ownerRepository.findAllIdsAndLastNames()) {
+			ownerDirectoryIndex.add((String) row[1], (Integer) row[0]);
+		}
+		ownerDirectoryIndex.markReady();
+		logger.info("Owner directory index built: {} owners, ~{} bytes per owner",
+				ownerDirectoryIndex.getOwnerCount(), Math.round(ownerDirectoryIndex.getEstimatedBytesPerOwner()));
 	}
 
 	// pets
@@ -85,23 +331,58 @@ public class ClinicServiceImpl implements ClinicService {
 		return petRepository.findById(id);
 	}
 
+	/**
+	 * Served from the Hibernate query cache, which Hibernate invalidates on writes to
+	 * the pet types.
+	 */
 	@Override
 	@Transactional(readOnly = true)
 	public Collection<PetType> findPetTypes() throws DataAccessException {
-		return petRepository.findPetTypes();
+		return Collections.unmodifiableList(petRepository.findPetTypes());
 	}
 
 	@Override
 	@Transactional
 	public void savePet(Pet pet) throws DataAccessException {
 		petRepository.save(pet);
+		if (pet.getOwner() != null) {
+			evictOwnerDetails(pet.getOwner().getId());
+		}
 	}
 
 	// vets
 	@Override
-	@Transactional(readOnly = true)
 	public Collection<Vet> findVets() throws DataAccessException {
-		return vetRepository.findAll();
+		return getVetDirectory().getVets();
+	}
+
+	/**
+	 * Returns the current snapshot, loading it if no vet was read since the last save.
+	 * Only loads outside of a transaction are shared: a transaction could see its own
+	 * uncommitted vets, so it gets a snapshot of its own, with version 0, when there is
+	 * no shared one or when it saved a vet.
+	 */
+	@Override
+	public VetDirectory getVetDirectory() throws DataAccessException {
+		VetDirectory directory = this.vetDirectory;
+		if (TransactionSynchronizationManager.hasResource(vetDirectoryChange)
+				|| directory == null && TransactionSynchronizationManager.isActualTransactionActive()) {
+			return new VetDirectory(0, vetRepository.findAll());
+		}
+		return directory != null ? directory : loadVetDirectory();
+	}
+
+	private synchronized VetDirectory loadVetDirectory() {
+		if (this.vetDirectory == null) {
+			this.vetDirectory = new VetDirectory(++this.vetDirectoryVersion, vetRepository.findAll());
+		}
+		return this.vetDirectory;
+	}
+
+	// a load that started before the save committed finishes before this runs, so a
+	// stale snapshot never survives the invalidation
+	private synchronized void invalidateVetDirectory() {
+		this.vetDirectory = null;
 	}
 
 	@Override
@@ -109,14 +390,44 @@ public class ClinicServiceImpl implements ClinicService {
 		return vetRepository.findById(id);
 	}
 
+	@Override
+	public Vet findVetWithSpecialtiesById(int id) throws DataAccessException {
+		return vetRepository.findByIdWithSpecialties(id);
+	}
+
+	@Override
+	public boolean vetExistsWithFullName(String firstName, String lastName, int excludeId)
+			throws DataAccessException {
+		return vetRepository.existsByFullName(lastName, firstName, excludeId);
+	}
+
+	/**
+	 * Served from the Hibernate query cache, which Hibernate invalidates on writes to
+	 * the specialties.
+	 */
 	@Override
 	public Collection<Specialty> getVetSpecialties() throws DataAccessException {
-		return vetRepository.findVetSpecialities();
+		return Collections.unmodifiableList(vetRepository.findVetSpecialities());
 	}
 
+	/**
+	 * Drops the shared vet directory once the saving transaction completes, so other
+	 * requests never see an uncommitted vet. Until then the saving transaction reads its
+	 * own snapshots, see {@link #getVetDirectory()}.
+	 */
 	@Override
 	public void saveVet(Vet vet) throws DataAccessException {
 		vetRepository.save(vet);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			invalidateVetDirectory();
+		}
+		else if (!TransactionSynchronizationManager.hasResource(vetDirectoryChange)) {
+			TransactionSynchronizationManager.bindResource(vetDirectoryChange, Boolean.TRUE);
+			afterCompletion(() -> {
+				TransactionSynchronizationManager.unbindResourceIfPossible(vetDirectoryChange);
+				invalidateVetDirectory();
+			});
+		}
 	}
 
 	// visits
@@ -125,25 +436,237 @@ public class ClinicServiceImpl implements ClinicService {
 		return visitRepository.findByPetId(petId);
 	}
 
+	/**
+	 * Loads the visits of all given pets with one query, so the number of round trips
+	 * does not grow with the number of pets. Every requested pet id is present in the
+	 * returned map, mapped to an empty list if the pet has no visits.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<Integer, List<Visit>> findVisitsByPetIds(Collection<Integer> petIds) {
+		Map<Integer, List<Visit>> visitsByPetId = new HashMap<>();
+		if (petIds.isEmpty()) {
+			return visitsByPetId;
+		}
+		for (Integer petId : petIds) {
+			visitsByPetId.put(petId, new ArrayList<>());
+		}
+		for (Visit visit : visitRepository.findByPetIdIn(petIds)) {
+			visitsByPetId.computeIfAbsent(visit.getPetId(), id -> new ArrayList<>()).add(visit);
+		}
+		return visitsByPetId;
+	}
+
 	@Override
 	public Collection<Integer> findFilledSlots(int vetId, LocalDate day) {
 		return visitRepository.getFilledTimeSlots(day, vetId);
 	}
 
+	@Override
+	public SlotOccupancy findSlotOccupancy(int vetId, LocalDate day) {
+		return slotOccupancyCache.get(vetId, day, this::loadSlotOccupancy);
+	}
+
+	/**
+	 * @return the booked slots plus the slots held by other booking forms
+	 */
+	@Override
+	public SlotOccupancy findSlotAvailability(int vetId, LocalDate day, String holder) {
+		return withHolds(findSlotOccupancy(vetId, day), vetId, day, holder);
+	}
+
+	private SlotOccupancy withHolds(SlotOccupancy booked, int vetId, LocalDate day, String holder) {
+		int held = slotHolds.heldMask(vetId, day, holder);
+		return held == 0 ? booked : SlotOccupancy.ofMask(booked.getMask() | held);
+	}
+
+	@Override
+	public boolean holdSlot(int vetId, LocalDate day, int slot, String holder) {
+		return !findSlotOccupancy(vetId, day).isFilled(slot) && slotHolds.hold(vetId, day, slot, holder);
+	}
+
+	@Override
+	public void releaseSlotHolds(String holder) {
+		slotHolds.release(holder);
+	}
+
+	@Scheduled(fixedDelay = 60_000)
+	public void sweepExpiredSlotHolds() {
+		slotHolds.sweep();
+	}
+
+	/**
+	 * Loads the booked slots of all given vets over a date range with one query. Days
+	 * without bookings are absent from the inner maps. Slots held by booking forms are
+	 * reported as booked.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<Integer, Map<LocalDate, SlotOccupancy>> findSlotOccupancies(Collection<Integer> vetIds,
+			LocalDate from, LocalDate to) {
+		Map<Integer, Map<LocalDate, Integer>> masks = new HashMap<>();
+		if (!vetIds.isEmpty()) {
+			for (Object[] row : visitRepository.findFilledTimeSlots(vetIds, from, to)) {
+				int slot = (Integer) row[2];
+				if (SlotOccupancy.isValidSlot(slot)) {
+					masks.computeIfAbsent((Integer) row[0], id -> new HashMap<>()).merge((LocalDate) row[1],
+							1 << slot, (a, b) -> a | b);
+				}
+			}
+		}
+		Map<Integer, Map<LocalDate, SlotOccupancy>> occupancies = new HashMap<>();
+		for (Integer vetId : vetIds) {
+			Map<LocalDate, SlotOccupancy> byDay = new HashMap<>();
+			Map<LocalDate, Integer> booked = masks.getOrDefault(vetId, Collections.emptyMap());
+			for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+				int mask = booked.getOrDefault(day, 0) | slotHolds.heldMask(vetId, day, null);
+				if (mask != 0) {
+					byDay.put(day, SlotOccupancy.ofMask(mask));
+				}
+			}
+			occupancies.put(vetId, byDay);
+		}
+		return occupancies;
+	}
+
+	private SlotOccupancy loadSlotOccupancy(int vetId, LocalDate day) {
+		return SlotOccupancy.of(visitRepository.getFilledTimeSlots(day, vetId));
+	}
+
 	@Override
 	public Visit findVisitById(int visitId) {
 		return visitRepository.findById(visitId);
 	}
 
+	/**
+	 * Evicts the details of the owner recorded on the visit when it was added to a
+	 * loaded pet; the owner is only looked up for visits saved without one.
+	 */
 	@Override
 	@Transactional
 	public void saveVisit(Visit visit) throws DataAccessException {
+		Visit previous = visit.isNew() ? null : visitRepository.findById(visit.getId());
+		SlotKey freed = previous != null ? new SlotKey(previous) : null;
 		visitRepository.save(visit);
+
+		SlotKey filled = new SlotKey(visit);
+		afterCommit(() -> {
+			if (freed != null) {
+				slotOccupancyCache.free(freed.vetId, freed.date, freed.timeSlot);
+			}
+			slotOccupancyCache.fill(filled.vetId, filled.date, filled.timeSlot);
+		});
+		Integer ownerId = visit.getOwnerId();
+		evictOwnerDetails(ownerId != null ? ownerId : petRepository.findOwnerIdById(visit.getPetId()));
+	}
+
+	/**
+	 * Books a new visit, serializing bookings of the same vet and day within this node
+	 * so a taken slot is detected before writing. The check under the lock reads the
+	 * database rather than the slot occupancy cache, which may miss a cancellation on
+	 * another node, and replaces the cached day if it differs. The lock is held until the
+	 * transaction has committed and the cache is updated. A booking from another node
+	 * that wins the race still surfaces as a unique constraint violation, which is
+	 * reported the same way. A slot held by another booking form counts as taken, and the
+	 * holds of <code>holder</code> are released once the visit is booked.
+	 * @param holder identifies the booking form, may be null
+	 * @return the outcome, with the remaining free slots if the slot was taken
+	 */
+	@Override
+	public BookingResult bookVisit(Visit visit, String holder) throws DataAccessException {
+		int vetId = visit.getVetId();
+		LocalDate day = visit.getDate();
+		Lock lock = bookingLocks.lockFor(vetId, day);
+		lock.lock();
+		try {
+			SlotOccupancy booked = loadSlotOccupancy(vetId, day);
+			if (slotOccupancyCache.invalidateIfStale(vetId, day, booked)) {
+				slotOccupancyCache.recordStale();
+			}
+			SlotOccupancy occupancy = withHolds(booked, vetId, day, holder);
+			if (occupancy.isFilled(visit.getTimeSlot())) {
+				return BookingResult.slotTaken(occupancy);
+			}
+			try {
+				transactionTemplate.executeWithoutResult(status -> saveVisit(visit));
+			}
+			catch (DataIntegrityViolationException ex) {
+				slotOccupancyCache.invalidate(vetId, day);
+				return BookingResult.slotTaken(withHolds(loadSlotOccupancy(vetId, day), vetId, day, holder));
+			}
+			if (holder != null) {
+				slotHolds.release(holder);
+			}
+			return BookingResult.booked();
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	@Override
+	@Transactional
 	public void cancelVisit(int visitId) {
+		List<Object[]> rows = visitRepository.findWithOwnerIdById(visitId);
 		visitRepository.deleteById(visitId);
+		if (!rows.isEmpty()) {
+			SlotKey freed = new SlotKey((Visit) rows.get(0)[0]);
+			afterCommit(() -> slotOccupancyCache.free(freed.vetId, freed.date, freed.timeSlot));
+			evictOwnerDetails((Integer) rows.get(0)[1]);
+		}
+	}
+
+	/**
+	 * The slot a visit occupies, captured before the entity can change.
+	 */
+	private static final class SlotKey {
+
+		private final int vetId;
+
+		private final LocalDate date;
+
+		private final int timeSlot;
+
+		private SlotKey(Visit visit) {
+			this.vetId = visit.getVetId();
+			this.date = visit.getDate();
+			this.timeSlot = visit.getTimeSlot();
+		}
+
+	}
+
+	/**
+	 * Runs the given action once the current transaction has committed, or immediately
+	 * if no transaction is active, so in-memory state never reflects rolled back writes.
+	 */
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	/**
+	 * Runs the given action once the current transaction has committed or rolled back,
+	 * or immediately if no transaction is active.
+	 */
+	private static void afterCompletion(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				action.run();
+			}
+		});
 	}
 
 }
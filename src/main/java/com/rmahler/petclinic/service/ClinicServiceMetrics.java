@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.service;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times every {@link ClinicService} operation. Published meters, all tagged with the
+ * operation's <code>method</code>:
+ * <ul>
+ * <li><code>petclinic.service</code>: a timer, also tagged with the <code>outcome</code>
+ * (<code>success</code> or <code>error</code>)</li>
+ * <li><code>petclinic.service.errors</code>: failed calls, also tagged with the
+ * <code>exception</code></li>
+ * <li><code>petclinic.service.result.size</code>: the number of elements returned, for
+ * operations returning a collection, map or array</li>
+ * </ul>
+ * The meters of an operation are registered on its first call and looked up by
+ * {@link Method} afterwards, so a call costs a map lookup, two clock reads and the
+ * recording. Percentiles are configured through the
+ * <code>management.metrics.distribution.*</code> properties.
+ *
+ * @author Richard Mahler
+ */
+public class ClinicServiceMetrics implements MethodInterceptor {
+
+	private final Supplier<MeterRegistry> registrySupplier;
+
+	private volatile MeterRegistry registry;
+
+	private final Map<Method, OperationMeters> meters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param registry supplies the registry on the first call, so creating the
+	 * interceptor does not initialize it; may supply null to disable the metrics
+	 */
+	public ClinicServiceMetrics(Supplier<MeterRegistry> registry) {
+		this.registrySupplier = registry;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		MeterRegistry registry = registry();
+		if (registry == null) {
+			return invocation.proceed();
+		}
+		OperationMeters operation = meters.computeIfAbsent(invocation.getMethod(),
+				method -> new OperationMeters(registry, method));
+		long start = registry.config().clock().monotonicTime();
+		Object result;
+		try {
+			result = invocation.proceed();
+		}
+		catch (Throwable ex) {
+			operation.error.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+			registry.counter("petclinic.service.errors", "method", operation.name, "exception",
+					ex.getClass().getSimpleName()).increment();
+			throw ex;
+		}
+		operation.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+		if (operation.resultSize != null) {
+			int size = sizeOf(result);
+			if (size >= 0) {
+				operation.resultSize.record(size);
+			}
+		}
+		return result;
+	}
+
+	private MeterRegistry registry() {
+		MeterRegistry registry = this.registry;
+		if (registry == null) {
+			registry = registrySupplier.get();
+			this.registry = registry;
+		}
+		return registry;
+	}
+
+	private static boolean isSized(Class<?> type) {
+		return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || type.isArray()
+				|| type == Optional.class;
+	}
+
+	private static int sizeOf(Object result) {
+		if (result instanceof Optional) {
+			result = ((Optional<?>) result).orElse(null);
+		}
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof Map) {
+			return ((Map<?, ?>) result).size();
+		}
+		if (result != null && result.getClass().isArray()) {
+			return Array.getLength(result);
+		}
+		return -1;
+	}
+
+	private static final class OperationMeters {
+
+		private final String name;
+
+		private final Timer success;
+
+		private final Timer error;
+
+		private final DistributionSummary resultSize;
+
+		private OperationMeters(MeterRegistry registry, Method method) {
+			this.name = method.getName();
+			this.success = Timer.builder("petclinic.service").tag("method", name).tag("outcome", "success")
+					.register(registry);
+			this.error = Timer.builder("petclinic.service").tag("method", name).tag("outcome", "error")
+					.register(registry);
+			this.resultSize = isSized(method.getReturnType()) ? DistributionSummary
+					.builder("petclinic.service.result.size").tag("method", name).register(registry) : null;
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import javax.annotation.PreDestroy;
+
+import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.pet.Pet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Request-scoped identity map in front of the {@link ClinicService} lookups, so that
+ * the <code>@ModelAttribute</code> methods and handlers of one request share the
+ * entities they load and each id is read at most once per request. An owner's pets are
+ * registered along with the owner. Missing entities are remembered as well.
+ * <p>
+ * Entities are not shared between requests, and nothing is invalidated: a request that
+ * saves an entity and reads it again sees the instance it saved. The number of lookups
+ * and loads is logged at debug level when the request completes.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@Component
+@RequestScope
+public class RequestIdentityMap {
+
+	private static final Logger logger = LoggerFactory.getLogger(RequestIdentityMap.class);
+
+	private final ClinicService clinicService;
+
+	private final Map<Integer, Owner> owners = new HashMap<>();
+
+	private final Map<Integer, Pet> pets = new HashMap<>();
+
+	private int lookups;
+
+	private int loads;
+
+	public RequestIdentityMap(ClinicService clinicService) {
+		this.clinicService = clinicService;
+	}
+
+	public Owner findOwnerById(int id) {
+		Owner owner = find(owners, id, clinicService::findOwnerById);
+		if (owner != null) {
+			owner.getPets().forEach(pet -> {
+				if (!pet.isNew()) {
+					pets.putIfAbsent(pet.getId(), pet);
+				}
+			});
+		}
+		return owner;
+	}
+
+	public Pet findPetById(int id) {
+		return find(pets, id, clinicService::findPetById);
+	}
+
+	private <T> T find(Map<Integer, T> entities, int id, IntFunction<T> loader) {
+		lookups++;
+		if (entities.containsKey(id)) {
+			return entities.get(id);
+		}
+		loads++;
+		T entity = loader.apply(id);
+		entities.put(id, entity);
+		return entity;
+	}
+
+	public int getLookupCount() {
+		return lookups;
+	}
+
+	public int getLoadCount() {
+		return loads;
+	}
+
+	@PreDestroy
+	void logCounts() {
+		if (lookups > 0 && logger.isDebugEnabled()) {
+			logger.debug("Entity lookups in request: {} lookups, {} loads ({} owners, {} pets)", lookups, loads,
+					owners.size(), pets.size());
+		}
+	}
+
+}
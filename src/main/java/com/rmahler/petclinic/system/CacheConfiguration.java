@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.system;
+
+import java.time.Duration;
+
+import javax.cache.CacheManager;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import com.rmahler.petclinic.pet.PetType;
+import com.rmahler.petclinic.vet.Specialty;
+import com.rmahler.petclinic.vet.Vet;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration of the owner details read models and of the Hibernate
+ * second-level and query cache regions. Each cache is a bounded ehcache store, evicting
+ * the least valuable entries once full, with a time to live as a safety net for changes
+ * made outside the application. Sizes and times to live are set by the
+ * <code>petclinic.cache.*</code> properties.
+ * <p>
+ * The owner details cache is tiered: a small heap tier in front of an off-heap tier
+ * holding the serialized read models, so a large number of owners can be cached without
+ * growing the heap. A serialized owner with two pets and a few visits takes about 1 to
+ * 2 KB, so the default 512 MB off-heap tier
+ * (<code>petclinic.cache.owner-details.offheap-mb</code>) holds roughly 250,000 to
+ * 500,000 owners. Ehcache reserves the off-heap tier when the cache is created, so the
+ * JVM's <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum heap size,
+ * must leave room for it. The heap tier
+ * (<code>petclinic.cache.owner-details.heap-entries</code>) keeps 1,000 owners by
+ * default.
+ * </p>
+ * <p>
+ * The same cache manager holds the Hibernate second-level cache regions of the
+ * reference entities ({@link PetType}, {@link Specialty}, {@link Vet}) and the query
+ * cache. Those regions are kept up to date by Hibernate itself, and are the only cache
+ * of the pet type and specialty lists.
+ * </p>
+ * <p>
+ * Statistics are enabled so that hits, misses and evictions are published through the
+ * actuator metrics endpoint (<code>cache.gets</code>, <code>cache.evictions</code>, ...),
+ * per region for the second-level cache (<code>hibernate.second.level.cache.requests</code>).
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableCaching
+class CacheConfiguration {
+
+	@Bean
+	public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer(
+			@Value("${petclinic.cache.owner-details.heap-entries:1000}") long ownerDetailsHeapEntries,
+			@Value("${petclinic.cache.owner-details.offheap-mb:512}") long ownerDetailsOffheapMegabytes,
+			@Value("${petclinic.cache.owner-details.time-to-live:12h}") Duration ownerDetailsTimeToLive,
+			@Value("${petclinic.cache.pet-types.max-entries:100}") long petTypeEntries,
+			@Value("${petclinic.cache.specialties.max-entries:100}") long specialtyEntries,
+			@Value("${petclinic.cache.vets.max-entries:1000}") long vetEntries,
+			@Value("${petclinic.cache.query-results.max-entries:100}") long queryResultEntries,
+			@Value("${petclinic.cache.reference.time-to-live:1h}") Duration referenceTimeToLive) {
+		return cm -> {
+			// owner details read models: the most recently viewed on the heap, the rest
+			// serialized off-heap, out of reach of the garbage collector
+			createCache(cm, "ownerDetails", ResourcePoolsBuilder.heap(ownerDetailsHeapEntries)
+					.offheap(ownerDetailsOffheapMegabytes, MemoryUnit.MB), ownerDetailsTimeToLive);
+
+			// Hibernate second-level cache regions
+			createCache(cm, PetType.class.getName(), petTypeEntries, referenceTimeToLive);
+			createCache(cm, Specialty.class.getName(), specialtyEntries, referenceTimeToLive);
+			createCache(cm, Vet.class.getName(), vetEntries, referenceTimeToLive);
+			createCache(cm, Vet.class.getName() + ".specialties", vetEntries, referenceTimeToLive);
+			createCache(cm, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryResultEntries,
+					referenceTimeToLive);
+			// one entry per table, and must outlive every cached query result, so it is
+			// neither configurable nor expiring
+			createCache(cm, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 1_000, null);
+		};
+	}
+
+	/**
+	 * Let Hibernate put its regions in the application's cache manager instead of
+	 * creating a second one, so they are configured above and reported with the others.
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer petclinicSecondLevelCacheCustomizer(
+			ObjectProvider<CacheManager> cacheManager) {
+		return properties -> cacheManager.ifAvailable(cm -> properties.put(ConfigSettings.CACHE_MANAGER, cm));
+	}
+
+	private static void createCache(CacheManager cm, String name, long maxEntries, Duration timeToLive) {
+		createCache(cm, name, ResourcePoolsBuilder.heap(maxEntries), timeToLive);
+	}
+
+	private static void createCache(CacheManager cm, String name, ResourcePoolsBuilder resources,
+			Duration timeToLive) {
+		CacheConfigurationBuilder<Object, Object> configuration = CacheConfigurationBuilder
+				.newCacheConfigurationBuilder(Object.class, Object.class, resources);
+		if (timeToLive != null) {
+			configuration = configuration.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive));
+		}
+		cm.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+		cm.enableStatistics(name, true);
+	}
+
+}
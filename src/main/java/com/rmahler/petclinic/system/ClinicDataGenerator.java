@@ -0,0 +1,549 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills the clinic schema with synthetic data at production volumes, through batched
+ * JDBC inserts that work on H2 and MySQL alike.
+ * <ul>
+ * <li>owners, with last names drawn from a Zipf distribution over some 15,000 names (the
+ * most common ones are the real names of the sample data), so a few names match tens of
+ * thousands of owners and most match a handful</li>
+ * <li>1 to 15 pets per owner, about 2 on average, of the existing pet types</li>
+ * <li>vets (one per 1,000 owners unless set) with up to two of the existing
+ * specialties</li>
+ * <li>visits of random pets in half of the slots of each vet over the past
+ * <code>historyYears</code> years, Sundays excepted, and in the next
+ * <code>upcomingDays</code> days from almost all slots tomorrow down to a third at the
+ * end; a past visit is always of a pet born by then</li>
+ * </ul>
+ * Rows are added after the existing ones, with explicit ids. Visits only use the new
+ * vets, so they never collide with existing bookings. The same seed, settings and
+ * <code>today</code> always produce the same data, and each table draws from its own
+ * random sequence, so e.g. changing the number of vets leaves the owners as they were.
+ * <p>
+ * {@link #generateOnce()} records each run in the <code>generator_runs</code> table, so
+ * that a persistent database is filled once and an interrupted run is redone rather than
+ * extended.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public class ClinicDataGenerator {
+
+	private static final Logger logger = LoggerFactory.getLogger(ClinicDataGenerator.class);
+
+	private static final String[] COMMON_LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown", "Jones", "Davis",
+			"Miller", "Wilson", "Moore", "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin",
+			"Thompson", "Garcia", "Martinez", "Robinson", "Clark", "Rodriquez", "Lewis", "Lee", "Walker", "Hall",
+			"Allen", "Young", "Hernandez", "King", "Wright", "Lopez", "Hill", "Scott", "Green", "Adams", "Baker",
+			"Franklin", "Black", "Coleman", "Schroeder", "McTavish", "Escobito", "Estaban", "Carter", "Leary",
+			"Douglas", "Ortega", "Stevens", "Jenkins" };
+
+	private static final String[] LAST_NAME_STARTS = { "Ab", "Ber", "Cal", "Dun", "El", "Fair", "Gal", "Har", "Ing",
+			"Jen", "Kel", "Lan", "Mac", "Nor", "Ol", "Pen", "Quin", "Ros", "Sal", "Tor", "Ul", "Van", "Wal", "Yar",
+			"Zim", "Ash", "Brad", "Cro", "Dal", "Ever", "Fitz", "Gold", "Holt", "Kirk", "Lind", "Mont", "New", "Pem",
+			"Rad", "Stan" };
+
+	private static final String[] LAST_NAME_MIDDLES = { "a", "e", "i", "o", "er", "en", "in", "or", "ing", "ham",
+			"ley", "ton" };
+
+	private static final String[] LAST_NAME_ENDS = { "son", "sen", "berg", "field", "ford", "man", "ski", "ez",
+			"well", "wood", "worth", "by", "dale", "land", "more", "ridge", "stone", "ville", "holm", "stead", "croft",
+			"burn", "ington", "ard", "ett", "ier", "ini", "ova", "sky", "ner" };
+
+	private static final String[] FIRST_NAMES = { "George", "Betty", "Eduardo", "Harold", "Peter", "Jean", "Jeff",
+			"Maria", "David", "Carlos", "James", "Helen", "Linda", "Rafael", "Henry", "Sharon", "Mary", "John",
+			"Patricia", "Robert", "Jennifer", "Michael", "Elizabeth", "William", "Barbara", "Richard", "Susan",
+			"Joseph", "Jessica", "Charles", "Sarah", "Daniel", "Karen", "Matthew", "Nancy", "Anthony", "Lisa", "Mark",
+			"Sandra", "Paul" };
+
+	private static final String[] PET_NAMES = { "Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha", "Max",
+			"Lucky", "Mulligan", "Freddy", "Sly", "Bella", "Charlie", "Luna", "Lucy", "Daisy", "Milo", "Cooper",
+			"Bailey", "Oliver", "Buddy", "Coco", "Rocky", "Ruby", "Tucker", "Bear", "Molly", "Duke", "Pepper", "Ziggy",
+			"Oscar", "Nala", "Simba", "Loki", "Rex", "Gizmo", "Biscuit", "Maple", "Olive" };
+
+	private static final String[] STREETS = { "W. Liberty St.", "Cardinal Ave.", "Commerce St.", "Friendly St.",
+			"S. Fair Way", "N. Lake St.", "Oak Blvd.", "Maple St.", "Blackhawk Trail", "Independence La.", "Main St.",
+			"University Ave.", "Park St.", "Mineral Point Rd.", "Monroe St.", "Regent St.", "Atwood Ave.",
+			"Williamson St.", "Johnson St.", "Gorham St." };
+
+	private static final String[] CITIES = { "Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee",
+			"Middleton", "Verona", "Fitchburg", "Stoughton", "Oregon", "DeForest" };
+
+	private static final String[] DESCRIPTIONS = { "rabies shot", "neutered", "spayed", "annual checkup",
+			"vaccination", "dental cleaning", "skin allergy", "ear infection", "limping", "follow-up", "x-ray",
+			"weight check" };
+
+	private static final int MAX_PETS_PER_OWNER = 15;
+
+	private static final int FIRST_TIME_SLOT = 1;
+
+	private static final int LAST_TIME_SLOT = 9;
+
+	private static final double HISTORY_DENSITY = 0.5;
+
+	private static final double FIRST_UPCOMING_DENSITY = 0.95;
+
+	private static final double LAST_UPCOMING_DENSITY = 0.33;
+
+	// draws of a pet born by the day of a past visit before the slot is left empty
+	private static final int MAX_PET_DRAWS = 20;
+
+	private final JdbcTemplate jdbc;
+
+	private final TransactionTemplate transaction;
+
+	private final long seed;
+
+	private int owners = 1_000_000;
+
+	private int vets;
+
+	private int historyYears = 3;
+
+	private int upcomingDays = 60;
+
+	private int batchSize = 1_000;
+
+	private LocalDate today = LocalDate.now();
+
+	private final String[] lastNames = lastNames();
+
+	private final ZipfDistribution lastNameRanks = new ZipfDistribution(lastNames.length, 1.0);
+
+	// exponent 2 gives 1 pet for 63% of the owners, 2 for 16%, 15 for 0.3%, 2.1 on average
+	private final ZipfDistribution petsPerOwner = new ZipfDistribution(MAX_PETS_PER_OWNER, 2.0);
+
+	public ClinicDataGenerator(JdbcTemplate jdbc, PlatformTransactionManager transactionManager, long seed) {
+		this.jdbc = jdbc;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.seed = seed;
+	}
+
+	/**
+	 * @param owners the number of owners to add, 1,000,000 by default
+	 */
+	public void setOwners(int owners) {
+		this.owners = owners;
+	}
+
+	/**
+	 * @param vets the number of vets to add, 0 (the default) for one per 1,000 owners and
+	 * at least 10
+	 */
+	public void setVets(int vets) {
+		this.vets = vets;
+	}
+
+	/**
+	 * @param historyYears how many years of past visits to add, 3 by default
+	 */
+	public void setHistoryYears(int historyYears) {
+		this.historyYears = historyYears;
+	}
+
+	/**
+	 * @param upcomingDays how many days of bookings to add from today on, 60 by default
+	 */
+	public void setUpcomingDays(int upcomingDays) {
+		this.upcomingDays = upcomingDays;
+	}
+
+	/**
+	 * @param batchSize rows per JDBC batch, and owners per transaction, 1,000 by default
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param today the day that separates past visits from bookings, the current date by
+	 * default; fix it to generate the same data on different days
+	 */
+	public void setToday(LocalDate today) {
+		this.today = today;
+	}
+
+	public Result generate() {
+		return generate(new Ids());
+	}
+
+	/**
+	 * Generate unless a run with the same seed and number of owners completed before.
+	 * The run is recorded in the <code>generator_runs</code> table with the first id it
+	 * uses in each table, and marked as completed at the end. A recorded run that did not
+	 * complete is deleted first, together with every row added after its first ids, so
+	 * it is generated again with the same ids.
+	 * @return what was added, or null if a completed run was found
+	 */
+	public Result generateOnce() {
+		int completed = jdbc.queryForObject(
+				"SELECT COUNT(*) FROM generator_runs WHERE seed = ? AND owners = ? AND completed = ?", Integer.class,
+				seed, owners, true);
+		if (completed > 0) {
+			logger.info("Not generating data, {} owners from seed {} were generated before", owners, seed);
+			return null;
+		}
+		deleteIncompleteRuns();
+		Ids ids = new Ids();
+		jdbc.update("INSERT INTO generator_runs (seed, owners, first_owner_id, first_pet_id, first_vet_id, "
+				+ "first_visit_id, completed) VALUES (?, ?, ?, ?, ?, ?, ?)", seed, owners, ids.owner, ids.pet, ids.vet,
+				ids.visit, false);
+		Result result = generate(ids);
+		jdbc.update("UPDATE generator_runs SET completed = ? WHERE seed = ? AND owners = ?", true, seed, owners);
+		return result;
+	}
+
+	private void deleteIncompleteRuns() {
+		List<Map<String, Object>> runs = jdbc.queryForList(
+				"SELECT seed, owners, first_owner_id, first_pet_id, first_vet_id, first_visit_id FROM generator_runs "
+						+ "WHERE completed = ?",
+				false);
+		for (Map<String, Object> run : runs) {
+			logger.info("Deleting the data of the incomplete run of {} owners from seed {}", run.get("owners"),
+					run.get("seed"));
+			int firstOwnerId = ((Number) run.get("first_owner_id")).intValue();
+			int firstPetId = ((Number) run.get("first_pet_id")).intValue();
+			int firstVetId = ((Number) run.get("first_vet_id")).intValue();
+			int firstVisitId = ((Number) run.get("first_visit_id")).intValue();
+			transaction.execute(status -> {
+				jdbc.update("DELETE FROM visits WHERE id >= ? OR pet_id >= ? OR vet_id >= ?", firstVisitId,
+						firstPetId, firstVetId);
+				jdbc.update("DELETE FROM vet_specialties WHERE vet_id >= ?", firstVetId);
+				jdbc.update("DELETE FROM vets WHERE id >= ?", firstVetId);
+				jdbc.update("DELETE FROM pets WHERE id >= ? OR owner_id >= ?", firstPetId, firstOwnerId);
+				jdbc.update("DELETE FROM owners WHERE id >= ?", firstOwnerId);
+				jdbc.update("DELETE FROM generator_runs WHERE seed = ? AND owners = ?", run.get("seed"),
+						run.get("owners"));
+				return null;
+			});
+		}
+	}
+
+	private Result generate(Ids ids) {
+		long start = System.nanoTime();
+		int vetCount = vets > 0 ? vets : Math.max(10, owners / 1_000);
+		logger.info("Generating {} owners and {} vets, {} years of visits and {} days of bookings from seed {}",
+				owners, vetCount, historyYears, upcomingDays, seed);
+
+		int[] petBirthDays = insertOwnersAndPets(ids, new Random(seed));
+		int petCount = petBirthDays.length;
+		insertVets(ids, vetCount, new Random(seed + 1));
+		LocalDate from = today.minusYears(historyYears);
+		int[] visitCounts = insertVisits(ids, vetCount, petBirthDays, from, new Random(seed + 2));
+		restartIdentities();
+
+		Result result = new Result(ids.owner, owners, ids.pet, petCount, ids.vet, vetCount, from,
+				today.plusDays(upcomingDays), visitCounts[0], visitCounts[1], Duration.ofNanos(System.nanoTime() - start));
+		logger.info("Generated {}", result);
+		return result;
+	}
+
+	/**
+	 * @return the birth date of each added pet, as epoch day, by pet id from the first one
+	 */
+	private int[] insertOwnersAndPets(Ids ids, Random random) {
+		int[] petTypes = jdbc.queryForList("SELECT id FROM types ORDER BY id", Integer.class).stream()
+				.mapToInt(Integer::intValue).toArray();
+		Batch owners = new Batch("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)");
+		Batch pets = new Batch("INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)");
+		int petId = ids.pet;
+		int[] birthDays = new int[Math.max(16, this.owners * 2)];
+		for (int i = 0; i < this.owners; i++) {
+			int ownerId = ids.owner + i;
+			owners.add(ownerId, pick(FIRST_NAMES, random), lastNames[lastNameRanks.sample(random)],
+					(100 + random.nextInt(9_900)) + " " + pick(STREETS, random), pick(CITIES, random),
+					"608555" + (1_000 + random.nextInt(9_000)));
+			for (int n = petsPerOwner.sample(random) + 1; n > 0; n--) {
+				LocalDate birthDate = today.minusDays(random.nextInt(15 * 365));
+				if (petId - ids.pet == birthDays.length) {
+					birthDays = Arrays.copyOf(birthDays, birthDays.length * 2);
+				}
+				birthDays[petId - ids.pet] = (int) birthDate.toEpochDay();
+				pets.add(petId++, pick(PET_NAMES, random), Date.valueOf(birthDate),
+						petTypes[random.nextInt(petTypes.length)], ownerId);
+			}
+			if (owners.size() == batchSize) {
+				flush(owners, pets);
+			}
+			if ((i + 1) % 100_000 == 0) {
+				logger.info("{} owners", i + 1);
+			}
+		}
+		flush(owners, pets);
+		return Arrays.copyOf(birthDays, petId - ids.pet);
+	}
+
+	private void insertVets(Ids ids, int vetCount, Random random) {
+		int[] specialties = jdbc.queryForList("SELECT id FROM specialties ORDER BY id", Integer.class).stream()
+				.mapToInt(Integer::intValue).toArray();
+		Batch vets = new Batch("INSERT INTO vets (id, first_name, last_name) VALUES (?, ?, ?)");
+		Batch vetSpecialties = new Batch("INSERT INTO vet_specialties (vet_id, specialty_id) VALUES (?, ?)");
+		for (int i = 0; i < vetCount; i++) {
+			int vetId = ids.vet + i;
+			vets.add(vetId, pick(FIRST_NAMES, random), lastNames[lastNameRanks.sample(random)]);
+			Set<Integer> chosen = new LinkedHashSet<>();
+			for (int n = specialties.length == 0 ? 0 : random.nextInt(3); n > 0; n--) {
+				chosen.add(specialties[random.nextInt(specialties.length)]);
+			}
+			for (Integer specialty : chosen) {
+				vetSpecialties.add(vetId, specialty);
+			}
+			if (vets.size() == batchSize) {
+				flush(vets, vetSpecialties);
+			}
+		}
+		flush(vets, vetSpecialties);
+	}
+
+	/**
+	 * @return the number of past visits and of bookings
+	 */
+	private int[] insertVisits(Ids ids, int vetCount, int[] petBirthDays, LocalDate from, Random random) {
+		Batch visits = new Batch("INSERT INTO visits (id, pet_id, vet_id, visit_date, time_slot, description) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)");
+		int[] counts = new int[2];
+		int visitId = ids.visit;
+		for (LocalDate day = from; day.isBefore(today.plusDays(upcomingDays)); day = day.plusDays(1)) {
+			if (day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+				continue;
+			}
+			boolean upcoming = !day.isBefore(today);
+			double density = upcoming ? FIRST_UPCOMING_DENSITY - (FIRST_UPCOMING_DENSITY - LAST_UPCOMING_DENSITY)
+					* ChronoUnit.DAYS.between(today, day) / Math.max(1, upcomingDays) : HISTORY_DENSITY;
+			Date date = Date.valueOf(day);
+			long epochDay = day.toEpochDay();
+			for (int vet = 0; vet < vetCount; vet++) {
+				for (int slot = FIRST_TIME_SLOT; slot <= LAST_TIME_SLOT; slot++) {
+					if (random.nextDouble() < density) {
+						// pets are born by today, so only past visits may need another draw
+						int pet = random.nextInt(petBirthDays.length);
+						for (int draw = 1; petBirthDays[pet] > epochDay && draw < MAX_PET_DRAWS; draw++) {
+							pet = random.nextInt(petBirthDays.length);
+						}
+						if (petBirthDays[pet] > epochDay) {
+							continue;
+						}
+						visits.add(visitId++, ids.pet + pet, ids.vet + vet, date, slot, pick(DESCRIPTIONS, random));
+						counts[upcoming ? 1 : 0]++;
+						if (visits.size() == batchSize) {
+							flush(visits);
+						}
+					}
+				}
+			}
+		}
+		flush(visits);
+		return counts;
+	}
+
+	private void flush(Batch... batches) {
+		transaction.execute(status -> {
+			for (Batch batch : batches) {
+				batch.flush();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * MySQL moves AUTO_INCREMENT past explicit ids by itself, H2 and HSQLDB need to be
+	 * told, with the same statement. That is DDL, which commits on both, so it is skipped
+	 * inside a caller's transaction (as in tests that roll the generated data back).
+	 */
+	private void restartIdentities() {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			logger.info("Not restarting identity columns within the caller's transaction");
+			return;
+		}
+		String database = jdbc.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+		if ("H2".equals(database) || "HSQL Database Engine".equals(database)) {
+			for (String table : Arrays.asList("owners", "pets", "vets", "visits")) {
+				int next = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Integer.class);
+				jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+			}
+		}
+	}
+
+	private static String pick(String[] values, Random random) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * The common names first, then made-up ones from three and two parts, in a fixed
+	 * order so that ranks, and thereby frequencies, do not change between runs.
+	 */
+	private static String[] lastNames() {
+		Set<String> names = new LinkedHashSet<>(Arrays.asList(COMMON_LAST_NAMES));
+		for (String end : LAST_NAME_ENDS) {
+			for (String start : LAST_NAME_STARTS) {
+				names.add(start + end);
+			}
+		}
+		for (String middle : LAST_NAME_MIDDLES) {
+			for (String end : LAST_NAME_ENDS) {
+				for (String start : LAST_NAME_STARTS) {
+					names.add(start + middle + end);
+				}
+			}
+		}
+		return names.toArray(new String[0]);
+	}
+
+	/**
+	 * The first id to use in each table.
+	 */
+	private final class Ids {
+
+		private final int owner = nextId("owners");
+
+		private final int pet = nextId("pets");
+
+		private final int vet = nextId("vets");
+
+		private final int visit = nextId("visits");
+
+		private int nextId(String table) {
+			return jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Integer.class);
+		}
+
+	}
+
+	private final class Batch {
+
+		private final String sql;
+
+		private final List<Object[]> rows = new ArrayList<>();
+
+		private Batch(String sql) {
+			this.sql = sql;
+		}
+
+		private void add(Object... row) {
+			rows.add(row);
+		}
+
+		private int size() {
+			return rows.size();
+		}
+
+		private void flush() {
+			if (!rows.isEmpty()) {
+				jdbc.batchUpdate(sql, rows);
+				rows.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * Ranks 0 to n - 1 with probabilities proportional to 1 / (rank + 1)^exponent.
+	 */
+	private static final class ZipfDistribution {
+
+		private final double[] cumulative;
+
+		private ZipfDistribution(int n, double exponent) {
+			cumulative = new double[n];
+			double sum = 0;
+			for (int rank = 0; rank < n; rank++) {
+				sum += 1 / Math.pow(rank + 1, exponent);
+				cumulative[rank] = sum;
+			}
+		}
+
+		private int sample(Random random) {
+			int pos = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+			return Math.min(pos >= 0 ? pos : -pos - 1, cumulative.length - 1);
+		}
+
+	}
+
+	/**
+	 * What {@link #generate()} added: the first id and number of owners, pets and vets,
+	 * the period of the visits (<code>visitsUntil</code> excluded) and the number of past
+	 * visits and of bookings.
+	 */
+	@Getter
+	@ToString
+	public static final class Result {
+
+		private final int firstOwnerId;
+
+		private final int ownerCount;
+
+		private final int firstPetId;
+
+		private final int petCount;
+
+		private final int firstVetId;
+
+		private final int vetCount;
+
+		private final LocalDate visitsFrom;
+
+		private final LocalDate visitsUntil;
+
+		private final int pastVisitCount;
+
+		private final int upcomingVisitCount;
+
+		private final Duration elapsed;
+
+		private Result(int firstOwnerId, int ownerCount, int firstPetId, int petCount, int firstVetId, int vetCount,
+				LocalDate visitsFrom, LocalDate visitsUntil, int pastVisitCount, int upcomingVisitCount,
+				Duration elapsed) {
+			this.firstOwnerId = firstOwnerId;
+			this.ownerCount = ownerCount;
+			this.firstPetId = firstPetId;
+			this.petCount = petCount;
+			this.firstVetId = firstVetId;
+			this.vetCount = vetCount;
+			this.visitsFrom = visitsFrom;
+			this.visitsUntil = visitsUntil;
+			this.pastVisitCount = pastVisitCount;
+			this.upcomingVisitCount = upcomingVisitCount;
+			this.elapsed = elapsed;
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Runs the {@link ClinicDataGenerator} at startup in the <code>generate</code> profile,
+ * after <code>schema.sql</code> and <code>data.sql</code> and before the application is
+ * ready, so the owner directory is built from the generated owners. Activate it together
+ * with the database profile, e.g. <code>spring.profiles.active=mysql,generate</code>;
+ * the settings are in <code>application-generate.properties</code>.
+ * <p>
+ * Nothing is generated when a run with the same seed and number of owners completed
+ * before, so restarting against a persistent database does not add the same data again;
+ * a run that was interrupted is deleted and generated again, see
+ * {@link ClinicDataGenerator#generateOnce()}.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("generate")
+class DataGeneratorConfiguration {
+
+	@Bean
+	public ApplicationRunner clinicDataGeneratorRunner(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+			@Value("${petclinic.generator.seed:42}") long seed,
+			@Value("${petclinic.generator.owners:1000000}") int owners,
+			@Value("${petclinic.generator.vets:0}") int vets,
+			@Value("${petclinic.generator.history-years:3}") int historyYears,
+			@Value("${petclinic.generator.upcoming-days:60}") int upcomingDays,
+			@Value("${petclinic.generator.batch-size:1000}") int batchSize,
+			@Value("${petclinic.generator.today:}") String today) {
+		return args -> {
+			ClinicDataGenerator generator = new ClinicDataGenerator(jdbc, transactionManager, seed);
+			generator.setOwners(owners);
+			generator.setVets(vets);
+			generator.setHistoryYears(historyYears);
+			generator.setUpcomingDays(upcomingDays);
+			generator.setBatchSize(batchSize);
+			if (StringUtils.hasText(today)) {
+				generator.setToday(LocalDate.parse(today));
+			}
+			generator.generateOnce();
+		};
+	}
+
+}
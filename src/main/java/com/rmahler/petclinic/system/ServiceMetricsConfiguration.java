@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.lang.reflect.Method;
+
+import com.rmahler.petclinic.owner.OwnerDirectoryIndex;
+import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.service.ClinicServiceImpl;
+import com.rmahler.petclinic.service.ClinicServiceMetrics;
+import com.rmahler.petclinic.visit.SlotOccupancyCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Adds {@link ClinicServiceMetrics} to the clinic service, outside of its transaction
+ * so that commits are part of the measured time, and publishes the state of the owner
+ * index and slot occupancy cache it is given.
+ *
+ * @author Richard Mahler
+ */
+@Configuration(proxyBeanMethods = false)
+class ServiceMetricsConfiguration {
+
+	@Bean
+	public static AbstractAdvisingBeanPostProcessor clinicServiceMetricsPostProcessor(
+			ObjectProvider<MeterRegistry> registry) {
+		return new ClinicServiceMetricsPostProcessor(registry);
+	}
+
+	@Bean
+	public OwnerDirectoryIndex ownerDirectoryIndex() {
+		return new OwnerDirectoryIndex();
+	}
+
+	@Bean
+	public SlotOccupancyCache slotOccupancyCache() {
+		return ClinicServiceImpl.newSlotOccupancyCache();
+	}
+
+	@Bean
+	public MeterBinder clinicServiceMeterBinder(OwnerDirectoryIndex ownerDirectoryIndex,
+			SlotOccupancyCache slotOccupancyCache) {
+		return new ClinicServiceMeterBinder(ownerDirectoryIndex, slotOccupancyCache);
+	}
+
+	private static final class ClinicServiceMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+		private ClinicServiceMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+			this.advisor = new DefaultPointcutAdvisor(new ClinicServiceOperations(),
+					new ClinicServiceMetrics(registry::getIfAvailable));
+			setBeforeExistingAdvisors(true);
+		}
+
+	}
+
+	private static final class ClinicServiceMeterBinder implements MeterBinder {
+
+		private final OwnerDirectoryIndex ownerDirectoryIndex;
+
+		private final SlotOccupancyCache slotOccupancyCache;
+
+		private ClinicServiceMeterBinder(OwnerDirectoryIndex ownerDirectoryIndex,
+				SlotOccupancyCache slotOccupancyCache) {
+			this.ownerDirectoryIndex = ownerDirectoryIndex;
+			this.slotOccupancyCache = slotOccupancyCache;
+		}
+
+		@Override
+		public void bindTo(MeterRegistry registry) {
+			Gauge.builder("petclinic.owner.index.owners", ownerDirectoryIndex, OwnerDirectoryIndex::getOwnerCount)
+					.register(registry);
+			Gauge.builder("petclinic.owner.index.bytes.per.owner", ownerDirectoryIndex,
+					OwnerDirectoryIndex::getEstimatedBytesPerOwner).baseUnit("bytes").register(registry);
+
+			Gauge.builder("petclinic.slot.cache.size", slotOccupancyCache, SlotOccupancyCache::size)
+					.register(registry);
+			FunctionCounter.builder("petclinic.slot.cache.gets", slotOccupancyCache, SlotOccupancyCache::getHitCount)
+					.tag("result", "hit").register(registry);
+			FunctionCounter.builder("petclinic.slot.cache.gets", slotOccupancyCache, SlotOccupancyCache::getMissCount)
+					.tag("result", "miss").register(registry);
+			FunctionCounter.builder("petclinic.slot.cache.evictions", slotOccupancyCache,
+					SlotOccupancyCache::getEvictionCount).register(registry);
+			FunctionCounter.builder("petclinic.slot.cache.verifications", slotOccupancyCache,
+					SlotOccupancyCache::getVerificationCount).register(registry);
+			FunctionCounter.builder("petclinic.slot.cache.stale", slotOccupancyCache,
+					SlotOccupancyCache::getStaleCount).register(registry);
+		}
+
+	}
+
+	/**
+	 * Matches the methods declared by {@link ClinicService} on its implementations.
+	 */
+	private static final class ClinicServiceOperations extends StaticMethodMatcherPointcut {
+
+		private ClinicServiceOperations() {
+			setClassFilter(ClinicService.class::isAssignableFrom);
+		}
+
+		@Override
+		public boolean matches(Method method, Class<?> targetClass) {
+			return ReflectionUtils.findMethod(ClinicService.class, method.getName(),
+					method.getParameterTypes()) != null;
+		}
+
+	}
+
+}
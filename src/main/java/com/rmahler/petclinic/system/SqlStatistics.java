@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL statements, rows read and JDBC time of a unit of work on the current thread,
+ * usually an HTTP request. Filled in by {@link SqlStatisticsDataSource} for connections
+ * obtained while a unit of work is active.
+ * <p>
+ * Units of work nest: a statement is counted in every active unit of the thread, so a
+ * test can measure several requests as a whole while each request is measured on its
+ * own.
+ * </p>
+ * <p>
+ * A unit of work started with {@link #beginRecording()} also keeps every statement with
+ * its bound parameters, to look at the SQL that was actually sent; the parameters of
+ * statements are only tracked while such a unit is active.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public final class SqlStatistics {
+
+	private static final ThreadLocal<SqlStatistics> current = new ThreadLocal<>();
+
+	private final SqlStatistics parent;
+
+	private int statementCount;
+
+	private long rowCount;
+
+	private long jdbcNanos;
+
+	private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+	// null unless started by beginRecording
+	private final List<ExecutedStatement> statements;
+
+	private SqlStatistics(SqlStatistics parent, boolean recording) {
+		this.parent = parent;
+		this.statements = recording ? new ArrayList<>() : null;
+	}
+
+	/**
+	 * Start counting on the current thread.
+	 * @return the new unit of work, to be passed to {@link #end()} once done
+	 */
+	public static SqlStatistics begin() {
+		return begin(false);
+	}
+
+	/**
+	 * Start counting on the current thread, keeping the executed statements.
+	 * @return the new unit of work, to be passed to {@link #end()} once done
+	 * @see #getStatements()
+	 */
+	public static SqlStatistics beginRecording() {
+		return begin(true);
+	}
+
+	private static SqlStatistics begin(boolean recording) {
+		SqlStatistics statistics = new SqlStatistics(current.get(), recording);
+		current.set(statistics);
+		return statistics;
+	}
+
+	/**
+	 * @return the innermost unit of work of the current thread, or null if none is
+	 * active
+	 */
+	public static SqlStatistics current() {
+		return current.get();
+	}
+
+	static boolean isActive() {
+		return current.get() != null;
+	}
+
+	/**
+	 * @return true if an active unit of work of the current thread keeps the executed
+	 * statements
+	 */
+	static boolean isRecording() {
+		for (SqlStatistics statistics = current.get(); statistics != null; statistics = statistics.parent) {
+			if (statistics.statements != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stop counting this unit of work; the enclosing one, if any, becomes current again.
+	 */
+	public void end() {
+		if (current.get() != this) {
+			throw new IllegalStateException("Not the current unit of work");
+		}
+		if (parent == null) {
+			current.remove();
+		}
+		else {
+			current.set(parent);
+		}
+	}
+
+	static void recordStatement(String sql, long nanos) {
+		recordStatement(sql, Collections.emptyList(), nanos);
+	}
+
+	/**
+	 * @param parameters the bound values, in parameter order
+	 */
+	static void recordStatement(String sql, List<Object> parameters, long nanos) {
+		for (SqlStatistics statistics = current.get(); statistics != null; statistics = statistics.parent) {
+			statistics.statementCount++;
+			statistics.jdbcNanos += nanos;
+			if (sql != null) {
+				statistics.executionsBySql.merge(sql, 1, Integer::sum);
+			}
+			if (statistics.statements != null) {
+				statistics.statements.add(new ExecutedStatement(sql, parameters));
+			}
+		}
+	}
+
+	static void recordRow() {
+		for (SqlStatistics statistics = current.get(); statistics != null; statistics = statistics.parent) {
+			statistics.rowCount++;
+		}
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public Duration getJdbcTime() {
+		return Duration.ofNanos(jdbcNanos);
+	}
+
+	/**
+	 * The statements executed at least <code>threshold</code> times, the usual sign of
+	 * an N+1 select: one query per element of a previously loaded collection.
+	 * @return the number of executions by SQL text, most executed first
+	 */
+	public Map<String, Integer> getRepeatedStatements(int threshold) {
+		Map<String, Integer> repeated = new LinkedHashMap<>();
+		executionsBySql.entrySet().stream().filter(entry -> entry.getValue() >= threshold)
+				.sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+				.forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+		return repeated;
+	}
+
+	/**
+	 * @return the statements executed so far, in order, if started by
+	 * {@link #beginRecording()}; otherwise an empty list
+	 */
+	public List<ExecutedStatement> getStatements() {
+		return statements != null ? Collections.unmodifiableList(statements) : Collections.emptyList();
+	}
+
+	@Override
+	public String toString() {
+		return statementCount + " statements, " + rowCount + " rows, " + getJdbcTime().toMillis() + " ms";
+	}
+
+	/**
+	 * A statement sent to the database, with the parameters bound when it was executed.
+	 */
+	public static final class ExecutedStatement {
+
+		private final String sql;
+
+		private final List<Object> parameters;
+
+		private ExecutedStatement(String sql, List<Object> parameters) {
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		/**
+		 * @return the bound values, in parameter order
+		 */
+		public List<Object> getParameters() {
+			return parameters;
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Per-request SQL statistics: the data source counts the statements of every request
+ * handled by a controller, see {@link SqlStatisticsInterceptor} for what is published.
+ * <p>
+ * Counting proxies every connection, statement and result set a request uses, so it is
+ * off unless <code>petclinic.sql.statistics</code> is true, as in the <code>dev</code>
+ * profile.
+ * </p>
+ * <p>
+ * <code>petclinic.sql.repeated-statement-threshold</code> sets how often one statement
+ * may run in a request before it is reported as an N+1 select (5 by default), and
+ * <code>petclinic.sql.response-headers</code> adds the numbers to the responses (on in
+ * the <code>dev</code> profile).
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("petclinic.sql.statistics")
+class SqlStatisticsConfiguration {
+
+	@Bean
+	public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource && !(bean instanceof SqlStatisticsDataSource)) {
+					return new SqlStatisticsDataSource((DataSource) bean);
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	public WebMvcConfigurer sqlStatisticsWebMvcConfigurer(ObjectProvider<MeterRegistry> registry,
+			@Value("${petclinic.sql.repeated-statement-threshold:5}") int repeatedThreshold,
+			@Value("${petclinic.sql.response-headers:false}") boolean responseHeaders) {
+		SqlStatisticsInterceptor interceptor = new SqlStatisticsInterceptor(registry.getIfAvailable(),
+				repeatedThreshold, responseHeaders);
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry interceptors) {
+				interceptors.addInterceptor(interceptor);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Counts statements, rows read and execution time into the current
+ * {@link SqlStatistics}. Only connections obtained while a unit of work is active are
+ * instrumented; all others are returned as they come from the pool, so work outside of
+ * requests pays nothing. The bound parameters of statements are only tracked while a
+ * unit of work that keeps the statements is active, see
+ * {@link SqlStatistics#beginRecording()}.
+ *
+ * @author Richard Mahler
+ */
+class SqlStatisticsDataSource extends DelegatingDataSource {
+
+	SqlStatisticsDataSource(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return instrument(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return instrument(super.getConnection(username, password));
+	}
+
+	private static Connection instrument(Connection connection) {
+		return SqlStatistics.isActive() ? proxy(Connection.class, new ConnectionHandler(connection)) : connection;
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(
+				Proxy.newProxyInstance(SqlStatisticsDataSource.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+	private static final class ConnectionHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private ConnectionHandler(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = SqlStatisticsDataSource.invoke(target, method, args);
+			if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+				// prepareStatement and prepareCall take the SQL up front, createStatement
+				// gets it on execute
+				String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+				return proxy(method.getReturnType(), new StatementHandler((Statement) result, sql));
+			}
+			return result;
+		}
+
+	}
+
+	private static final class StatementHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		private final String sql;
+
+		// null unless the statements are recorded
+		private final Map<Integer, Object> parameters;
+
+		private StatementHandler(Statement target, String sql) {
+			this.target = target;
+			this.sql = sql;
+			this.parameters = SqlStatistics.isRecording() ? new TreeMap<>() : null;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (parameters != null) {
+				recordParameter(name, args);
+			}
+			Object result;
+			if (name.startsWith("execute")) {
+				long start = System.nanoTime();
+				try {
+					result = SqlStatisticsDataSource.invoke(target, method, args);
+				}
+				finally {
+					String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+							: sql;
+					SqlStatistics.recordStatement(executed, boundParameters(), System.nanoTime() - start);
+				}
+			}
+			else {
+				result = SqlStatisticsDataSource.invoke(target, method, args);
+			}
+			if (result instanceof ResultSet) {
+				return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result));
+			}
+			return result;
+		}
+
+		private void recordParameter(String name, Object[] args) {
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+			}
+			else if (name.equals("clearParameters")) {
+				parameters.clear();
+			}
+		}
+
+		private List<Object> boundParameters() {
+			return parameters != null ? Collections.unmodifiableList(new ArrayList<>(parameters.values()))
+					: Collections.emptyList();
+		}
+
+	}
+
+	private static final class ResultSetHandler implements InvocationHandler {
+
+		private final ResultSet target;
+
+		private ResultSetHandler(ResultSet target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = SqlStatisticsDataSource.invoke(target, method, args);
+			if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+				SqlStatistics.recordRow();
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Measures the SQL work of each request handled by a controller method and publishes it
+ * per handler (<code>petclinic.request.sql.statements</code>,
+ * <code>petclinic.request.sql.rows</code>, <code>petclinic.request.sql.time</code>,
+ * tagged with <code>handler</code>, e.g. <code>OwnerController.showOwner</code>).
+ * <p>
+ * A statement executed <code>repeatedThreshold</code> times or more in one request is
+ * logged as a likely N+1 select and counted in
+ * <code>petclinic.request.sql.repeated</code>. With <code>responseHeaders</code> on, the
+ * numbers are also sent back as <code>X-SQL-Statements</code>, <code>X-SQL-Rows</code>
+ * and <code>X-SQL-Time-Ms</code>, which covers the work done before the view renders,
+ * or before the body is written for <code>@ResponseBody</code> handlers, see
+ * {@link SqlStatisticsResponseBodyAdvice}.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+class SqlStatisticsInterceptor implements HandlerInterceptor {
+
+	private static final Logger logger = LoggerFactory.getLogger(SqlStatisticsInterceptor.class);
+
+	private static final String STATISTICS_ATTRIBUTE = SqlStatisticsInterceptor.class.getName() + ".statistics";
+
+	private final MeterRegistry registry;
+
+	private final int repeatedThreshold;
+
+	private final boolean responseHeaders;
+
+	/**
+	 * @param registry where to publish the numbers, may be null
+	 */
+	SqlStatisticsInterceptor(MeterRegistry registry, int repeatedThreshold, boolean responseHeaders) {
+		this.registry = registry;
+		this.repeatedThreshold = repeatedThreshold;
+		this.responseHeaders = responseHeaders;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (handler instanceof HandlerMethod) {
+			request.setAttribute(STATISTICS_ATTRIBUTE, SqlStatistics.begin());
+		}
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+			ModelAndView modelAndView) {
+		SqlStatistics statistics = (SqlStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+		if (statistics != null && responseHeaders && !response.isCommitted()) {
+			writeHeaders(statistics, response::setHeader);
+		}
+	}
+
+	static void writeHeaders(SqlStatistics statistics, BiConsumer<String, String> headers) {
+		headers.accept("X-SQL-Statements", String.valueOf(statistics.getStatementCount()));
+		headers.accept("X-SQL-Rows", String.valueOf(statistics.getRowCount()));
+		headers.accept("X-SQL-Time-Ms", String.valueOf(statistics.getJdbcTime().toMillis()));
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		SqlStatistics statistics = (SqlStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+		if (statistics == null) {
+			return;
+		}
+		request.removeAttribute(STATISTICS_ATTRIBUTE);
+		statistics.end();
+
+		String handlerName = handlerName((HandlerMethod) handler);
+		Map<String, Integer> repeated = statistics.getRepeatedStatements(repeatedThreshold);
+		if (!repeated.isEmpty()) {
+			logger.warn("Possible N+1 select in {}: {}", handlerName, repeated);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("{}: {}", handlerName, statistics);
+		}
+		if (registry != null) {
+			DistributionSummary.builder("petclinic.request.sql.statements").tag("handler", handlerName)
+					.register(registry).record(statistics.getStatementCount());
+			DistributionSummary.builder("petclinic.request.sql.rows").tag("handler", handlerName).register(registry)
+					.record(statistics.getRowCount());
+			Timer.builder("petclinic.request.sql.time").tag("handler", handlerName).register(registry)
+					.record(statistics.getJdbcTime());
+			if (!repeated.isEmpty()) {
+				registry.counter("petclinic.request.sql.repeated", "handler", handlerName).increment();
+			}
+		}
+	}
+
+	private static String handlerName(HandlerMethod handler) {
+		return handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the SQL statistics headers to <code>@ResponseBody</code> responses just before the
+ * body is written. By the time {@link SqlStatisticsInterceptor#postHandle} runs, those
+ * responses are usually committed and can no longer take headers. Like the
+ * interceptor's, the headers are only sent with <code>petclinic.sql.response-headers</code>
+ * on, and only for requests whose statements are being counted.
+ *
+ * @author Richard Mahler
+ */
+@ControllerAdvice
+class SqlStatisticsResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+	private final boolean responseHeaders;
+
+	SqlStatisticsResponseBodyAdvice(@Value("${petclinic.sql.response-headers:false}") boolean responseHeaders) {
+		this.responseHeaders = responseHeaders;
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return responseHeaders;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		SqlStatistics statistics = SqlStatistics.current();
+		if (statistics != null) {
+			SqlStatisticsInterceptor.writeHeaders(statistics, response.getHeaders()::set);
+		}
+		return body;
+	}
+
+}
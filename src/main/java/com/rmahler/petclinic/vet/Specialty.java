@@ -19,9 +19,10 @@ import java.io.Serializable;
 
 import javax.persistence.Entity;
 import javax.persistence.Table;
-import javax.persistence.Transient;
 
 import com.rmahler.petclinic.model.NamedEntity;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Models a {@link Vet Vet's} specialty (for example, dentistry).
@@ -29,18 +30,8 @@ import com.rmahler.petclinic.model.NamedEntity;
  * @author Juergen Hoeller
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "specialties")
 public class Specialty extends NamedEntity implements Serializable {
 
-	public boolean isSelected() {
-		return isSelected;
-	}
-
-	public void setSelected(boolean selected) {
-		isSelected = selected;
-	}
-
-	@Transient
-	public boolean isSelected;
-
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One checkbox of the vet form: a specialty and whether the vet has it. Built per
+ * request, so the shared {@link Specialty} instances are never modified.
+ *
+ * @author Richard Mahler
+ */
+public final class SpecialtyOption {
+
+	private final Specialty specialty;
+
+	private final boolean selected;
+
+	private SpecialtyOption(Specialty specialty, boolean selected) {
+		this.specialty = specialty;
+		this.selected = selected;
+	}
+
+	/**
+	 * @param specialties all specialties, in display order
+	 * @param selectedSpecialties the specialties to mark as selected, may be null
+	 * @return one option per specialty
+	 */
+	public static List<SpecialtyOption> of(Collection<Specialty> specialties,
+			Collection<Specialty> selectedSpecialties) {
+		Set<Integer> selectedIds = new HashSet<>();
+		if (selectedSpecialties != null) {
+			selectedSpecialties.forEach(specialty -> selectedIds.add(specialty.getId()));
+		}
+		List<SpecialtyOption> options = new ArrayList<>(specialties.size());
+		for (Specialty specialty : specialties) {
+			options.add(new SpecialtyOption(specialty, selectedIds.contains(specialty.getId())));
+		}
+		return options;
+	}
+
+	public Integer getId() {
+		return specialty.getId();
+	}
+
+	public String getName() {
+		return specialty.getName();
+	}
+
+	public boolean isSelected() {
+		return selected;
+	}
+
+}
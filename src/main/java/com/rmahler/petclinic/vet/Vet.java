@@ -15,8 +15,7 @@
  */
 package com.rmahler.petclinic.vet;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,11 +26,14 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlElement;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import com.rmahler.petclinic.model.Person;
+import com.rmahler.petclinic.model.SortedView;
 
 /**
  * Simple JavaBean domain object representing a veterinarian.
@@ -42,14 +44,25 @@ import com.rmahler.petclinic.model.Person;
  * @author Arjen Poutsma
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "vets")
 public class Vet extends Person {
 
-	@ManyToMany(fetch = FetchType.EAGER)
+	private static final Comparator<Specialty> SPECIALTY_ORDER = Comparator.comparing(Specialty::getName,
+			Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+	// lazy by default, listings fetch them with a join (see VetRepository) and any other
+	// access initializes them in batches
+	@ManyToMany(fetch = FetchType.LAZY)
 	@JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"),
 			inverseJoinColumns = @JoinColumn(name = "specialty_id"))
+	@BatchSize(size = 50)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	private Set<Specialty> specialties;
 
+	@Transient
+	private final SortedView<Specialty> sortedSpecialties = new SortedView<>();
+
 	protected Set<Specialty> getSpecialtiesInternal() {
 		if (this.specialties == null) {
 			this.specialties = new HashSet<>();
@@ -59,13 +72,16 @@ public class Vet extends Person {
 
 	protected void setSpecialtiesInternal(Set<Specialty> specialties) {
 		this.specialties = specialties;
+		this.sortedSpecialties.invalidate();
 	}
 
+	/**
+	 * @return the specialties sorted by name, as an unmodifiable list shared until a
+	 * specialty is added
+	 */
 	@XmlElement
 	public List<Specialty> getSpecialties() {
-		List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-		PropertyComparator.sort(sortedSpecs, new MutableSortDefinition("name", true, true));
-		return Collections.unmodifiableList(sortedSpecs);
+		return sortedSpecialties.of(getSpecialtiesInternal(), SPECIALTY_ORDER);
 	}
 
 	public int getNrOfSpecialties() {
@@ -74,6 +90,7 @@ public class Vet extends Person {
 
 	public void addSpecialty(Specialty specialty) {
 		getSpecialtiesInternal().add(specialty);
+		sortedSpecialties.invalidate();
 	}
 
 }
@@ -17,15 +17,18 @@ package com.rmahler.petclinic.vet;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import com.rmahler.petclinic.service.ClinicService;
-import com.rmahler.petclinic.util.PersonUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -42,30 +45,56 @@ class VetController {
 
 	private ClinicService clinicService;
 
+	// tells apart the directory versions of successive runs of the application
+	private final String startupTag = Long.toString(System.currentTimeMillis(), 36);
+
 	@Autowired
 	public VetController(ClinicService clinicService) {
 		this.clinicService = clinicService;
 	}
 
 	@GetMapping("/vets.html")
-	public String showVetList(Map<String, Object> model) {
+	public String showVetList(Map<String, Object> model, WebRequest request, Locale locale) {
+		VetDirectory directory = this.clinicService.getVetDirectory();
+		if (request.checkNotModified(eTag(directory, "html", locale.toLanguageTag()))) {
+			return null;
+		}
 		// Here we are returning an object of type 'Vets' rather than a collection of Vet
 		// objects so it is simpler for Object-Xml mapping
 		Vets vets = new Vets();
-		vets.getVetList().addAll(this.clinicService.findVets());
+		vets.getVetList().addAll(directory.getVets());
 		model.put("vets", vets);
 		return "vets/vetList";
 	}
 
 	@GetMapping({ "/vets" })
-	public @ResponseBody Vets showResourcesVetList() {
+	public @ResponseBody Vets showResourcesVetList(WebRequest request, HttpServletResponse response) {
+		// the same URL serves JSON and XML, so the tag depends on the Accept header
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		VetDirectory directory = this.clinicService.getVetDirectory();
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (request.checkNotModified(eTag(directory, "data", accept))) {
+			return null;
+		}
 		// Here we are returning an object of type 'Vets' rather than a collection of Vet
 		// objects so it is simpler for JSon/Object mapping
 		Vets vets = new Vets();
-		vets.getVetList().addAll(clinicService.findVets());
+		vets.getVetList().addAll(directory.getVets());
 		return vets;
 	}
 
+	/**
+	 * Strong entity tag of a vet list representation: it changes whenever a vet is saved
+	 * and on every restart, and differs between representations. No Last-Modified is
+	 * sent: its one second precision would answer 304 for a save made within the same
+	 * second as the client's copy.
+	 */
+	private String eTag(VetDirectory directory, String representation, String variant) {
+		int variantHash = variant == null ? 0 : variant.hashCode();
+		return "\"vets-" + this.startupTag + "-" + directory.getVersion() + "-" + representation + "-"
+				+ Integer.toHexString(variantHash) + "\"";
+	}
+
 	@GetMapping("/vets/new")
 	public String initCreationForm(ModelMap model) {
 		populateSpecialities(null, model);
@@ -75,24 +104,8 @@ class VetController {
 	}
 
 	private void populateSpecialities(Vet vet, Map<String, Object> model) {
-		ArrayList<Specialty> spcs = new ArrayList<>();
-
-		Collection<Specialty> selectedSpc = null;
-		if (vet != null)
-			selectedSpc = vet.getSpecialtiesInternal();
-
-		Collection<Specialty> specialties = clinicService.getVetSpecialties();
-		for (Specialty s : specialties) {
-			if (selectedSpc != null) {
-				for (Specialty spec : selectedSpc) {
-					if (s.getId().intValue() == spec.getId().intValue()) {
-						s.setSelected(true);
-					}
-				}
-			}
-			spcs.add(s);
-		}
-		model.put("allspecialties", spcs);
+		Collection<Specialty> selectedSpc = vet != null ? vet.getSpecialtiesInternal() : null;
+		model.put("allspecialties", SpecialtyOption.of(clinicService.getVetSpecialties(), selectedSpc));
 	}
 
 	@PostMapping("/vets/new")
@@ -105,7 +118,7 @@ class VetController {
 
 	@GetMapping("/vets/{vetId}/edit")
 	public String initUpdateForm(@PathVariable("vetId") int vetId, ModelMap model) {
-		Vet vet = clinicService.findVetById(vetId);
+		Vet vet = clinicService.findVetWithSpecialtiesById(vetId);
 
 		populateSpecialities(vet, model);
 		model.put("vet", vet);
@@ -142,13 +155,8 @@ class VetController {
 	}
 
 	private boolean vetFullNameExists(Vet vet, int existingId, BindingResult result) {
-		Vet originalVet = null;
-		if (existingId != -1) {
-			originalVet = clinicService.findVetById(existingId);
-		}
-		Collection<Vet> allVets = clinicService.findVets();
-
-		boolean existsWithSameName = PersonUtil.existsWithFullName(vet, originalVet, allVets);
+		boolean existsWithSameName = clinicService.vetExistsWithFullName(vet.getFirstName(), vet.getLastName(),
+				existingId);
 		if (existsWithSameName) {
 			result.rejectValue("lastName", "duplicate_full_name", "already exists");
 		}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all vets, shared by every request until a vet is saved. Each new
+ * snapshot gets a higher version, so readers can tell whether the directory changed.
+ * <p>
+ * The vets in a snapshot are shared and must be treated as read-only.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public final class VetDirectory {
+
+	private final long version;
+
+	private final List<Vet> vets;
+
+	private final Map<Integer, Vet> vetsById;
+
+	public VetDirectory(long version, Collection<Vet> vets) {
+		this.version = version;
+		this.vets = Collections.unmodifiableList(new ArrayList<>(vets));
+		Map<Integer, Vet> byId = new HashMap<>();
+		for (Vet vet : this.vets) {
+			byId.put(vet.getId(), vet);
+		}
+		this.vetsById = Collections.unmodifiableMap(byId);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return all vets, in data store order
+	 */
+	public List<Vet> getVets() {
+		return vets;
+	}
+
+	/**
+	 * @return the vet with the given id, or null if there is none
+	 */
+	public Vet findById(Integer id) {
+		return vetsById.get(id);
+	}
+
+}
@@ -18,9 +18,13 @@ package com.rmahler.petclinic.vet;
 import java.util.Collection;
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -37,19 +41,48 @@ import org.springframework.transaction.annotation.Transactional;
 public interface VetRepository extends Repository<Vet, Integer> {
 
 	/**
-	 * Retrieve all <code>Vet</code>s from the data store.
+	 * Retrieve all <code>Vet</code>s from the data store, with their specialties, in a
+	 * single query, ordered by id.
 	 * @return a <code>Collection</code> of <code>Vet</code>s
 	 */
+	@Query("SELECT DISTINCT vet FROM Vet vet left join fetch vet.specialties ORDER BY vet.id")
+	@QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
 	@Transactional(readOnly = true)
 	Collection<Vet> findAll() throws DataAccessException;
 
 	/**
-	 * Retrieve an {@link Vet} from the data store by id.
+	 * Retrieve an {@link Vet} from the data store by id. Its specialties are loaded on
+	 * first access, in batches.
 	 * @param id the id to search for
 	 * @return the {@link Vet} if found
 	 */
+	@Query("SELECT vet FROM Vet vet WHERE vet.id = :id")
+	@Transactional(readOnly = true)
+	Vet findById(@Param("id") Integer id);
+
+	/**
+	 * Retrieve an {@link Vet} from the data store by id, with its specialties, in a
+	 * single query.
+	 * @param id the id to search for
+	 * @return the {@link Vet} if found
+	 */
+	@Query("SELECT vet FROM Vet vet left join fetch vet.specialties WHERE vet.id = :id")
+	@Transactional(readOnly = true)
+	Vet findByIdWithSpecialties(@Param("id") Integer id);
+
+	/**
+	 * Check whether another {@link Vet} has the given full name. Names are compared under
+	 * the column collation, which ignores case, using the (last name, first name) index.
+	 * @param lastName the last name, already trimmed
+	 * @param firstName the first name, already trimmed
+	 * @param excludeId id of the vet being updated, or -1 for a new vet
+	 * @return true if such a vet exists
+	 */
+	@Query("SELECT CASE WHEN COUNT(vet) > 0 THEN true ELSE false END FROM Vet vet "
+			+ "WHERE vet.lastName = :lastName AND vet.firstName = :firstName AND vet.id <> :excludeId")
 	@Transactional(readOnly = true)
-	Vet findById(Integer id);
+	boolean existsByFullName(@Param("lastName") String lastName, @Param("firstName") String firstName,
+			@Param("excludeId") Integer excludeId);
 
 	/**
 	 * Save an {@link Vet} to the data store, either inserting or updating it.
@@ -62,6 +95,7 @@ public interface VetRepository extends Repository<Vet, Integer> {
 	 * @return a <code>Collection</code> of <code>Specialties</code>s
 	 */
 	@Query("SELECT spcl FROM Specialty spcl ORDER BY spcl.name")
+	@QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
 	@Transactional(readOnly = true)
 	List<Specialty> findVetSpecialities();
 
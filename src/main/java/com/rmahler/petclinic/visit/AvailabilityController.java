@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.vet.Vet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * JSON API answering which slots are free for a set of vets over a range of days, with
+ * one query for the whole range.
+ *
+ * @author Richard Mahler
+ */
+@Controller
+class AvailabilityController {
+
+	private static final int MAX_DAYS = 31;
+
+	private final ClinicService clinicService;
+
+	@Autowired
+	public AvailabilityController(ClinicService clinicService) {
+		this.clinicService = clinicService;
+	}
+
+	/**
+	 * @param from first day, inclusive
+	 * @param to last day, inclusive, at most 31 days after <code>from</code>
+	 * @param vetIds optional vets to restrict the search to
+	 * @param specialty optional specialty name the vets must have
+	 * @return the free slots per vet and bookable day, ordered by day then vet
+	 */
+	@GetMapping("/availability")
+	public @ResponseBody List<AvailableSlots> findAvailableSlots(
+			@RequestParam("from") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+			@RequestParam("to") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+			@RequestParam(value = "vetId", required = false) List<Integer> vetIds,
+			@RequestParam(value = "specialty", required = false) String specialty) {
+
+		if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'to' must be on or after 'from' and at most " + MAX_DAYS + " days later");
+		}
+
+		List<Vet> vets = selectVets(vetIds, specialty);
+		Map<Integer, Map<LocalDate, SlotOccupancy>> occupancies = clinicService.findSlotOccupancies(
+				vets.stream().map(Vet::getId).collect(Collectors.toList()), from, to);
+
+		List<AvailableSlots> available = new ArrayList<>();
+		for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+			if (BookingCalendar.isVisitDayUnavailable(day)) {
+				continue;
+			}
+			for (Vet vet : vets) {
+				SlotOccupancy occupancy = occupancies.getOrDefault(vet.getId(), Collections.emptyMap())
+						.getOrDefault(day, SlotOccupancy.EMPTY);
+				if (!occupancy.isFull()) {
+					available.add(new AvailableSlots(vet.getId(), vet.getFirstName() + " " + vet.getLastName(), day,
+							TimeSlotFormatter.getAvailableSlots(occupancy)));
+				}
+			}
+		}
+		return available;
+	}
+
+	/**
+	 * @return the first free slot matching the criteria, or 204 if there is none
+	 */
+	@GetMapping("/availability/first")
+	public @ResponseBody ResponseEntity<AvailableSlots> findFirstAvailableSlot(
+			@RequestParam("from") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+			@RequestParam("to") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+			@RequestParam(value = "vetId", required = false) List<Integer> vetIds,
+			@RequestParam(value = "specialty", required = false) String specialty) {
+
+		List<AvailableSlots> available = findAvailableSlots(from, to, vetIds, specialty);
+		if (available.isEmpty()) {
+			return ResponseEntity.noContent().build();
+		}
+		AvailableSlots first = available.get(0);
+		return ResponseEntity.ok(new AvailableSlots(first.getVetId(), first.getVetName(), first.getDate(),
+				first.getSlots().subList(0, 1)));
+	}
+
+	private List<Vet> selectVets(Collection<Integer> vetIds, String specialty) {
+		// vets come from the cached directory, so filtering them costs no query
+		return clinicService.findVets().stream().filter(vet -> vetIds == null || vetIds.contains(vet.getId()))
+				.filter(vet -> specialty == null
+						|| vet.getSpecialties().stream().anyMatch(s -> s.getName().equalsIgnoreCase(specialty)))
+				.sorted(Comparator.comparing(Vet::getId)).collect(Collectors.toList());
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * The free time slots of one vet on one day, as returned by the availability API.
+ *
+ * @author Richard Mahler
+ */
+public class AvailableSlots {
+
+	private final int vetId;
+
+	private final String vetName;
+
+	@JsonFormat(pattern = "yyyy-MM-dd")
+	private final LocalDate date;
+
+	private final List<TimeSlot> slots;
+
+	public AvailableSlots(int vetId, String vetName, LocalDate date, List<TimeSlot> slots) {
+		this.vetId = vetId;
+		this.vetName = vetName;
+		this.date = date;
+		this.slots = slots;
+	}
+
+	public int getVetId() {
+		return vetId;
+	}
+
+	public String getVetName() {
+		return vetName;
+	}
+
+	public LocalDate getDate() {
+		return date;
+	}
+
+	public List<TimeSlot> getSlots() {
+		return slots;
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.rmahler.petclinic.visit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Utility class holding the rules for which days visits can be booked on
+ *
+ * @author Richard Mahler
+ */
+public class BookingCalendar {
+
+	private BookingCalendar() {
+
+	}
+
+	// can't book visit in the past, and assume no same day appointments nor weekends
+	public static boolean isVisitDayUnavailable(LocalDate visitDay) {
+		LocalDate currentDay = LocalDate.now();
+		boolean isWeekend = visitDay.getDayOfWeek() == DayOfWeek.SATURDAY
+				|| visitDay.getDayOfWeek() == DayOfWeek.SUNDAY;
+
+		return visitDay.isBefore(currentDay) || visitDay.isEqual(currentDay) || isWeekend;
+	}
+
+}
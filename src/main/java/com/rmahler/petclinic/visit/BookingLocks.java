@@ -0,0 +1,38 @@
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of striped locks serializing bookings of the same vet on the same day within
+ * this node. Different vets or days usually map to different stripes and do not contend.
+ *
+ * @author Richard Mahler
+ */
+public class BookingLocks {
+
+	private final Lock[] stripes;
+
+	private final int mask;
+
+	/**
+	 * @param stripes number of locks, rounded up to a power of two
+	 */
+	public BookingLocks(int stripes) {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.stripes = new Lock[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+	}
+
+	public Lock lockFor(int vetId, LocalDate day) {
+		int hash = 31 * vetId + day.hashCode();
+		// spread the high bits, the same way HashMap does
+		hash ^= hash >>> 16;
+		return stripes[hash & mask];
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.rmahler.petclinic.visit;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of booking a visit: either the visit was saved, or its slot was already taken
+ * and the slots still free on that day are returned.
+ *
+ * @author Richard Mahler
+ */
+public final class BookingResult {
+
+	private static final BookingResult BOOKED = new BookingResult(true, Collections.emptyList());
+
+	private final boolean booked;
+
+	private final List<TimeSlot> availableSlots;
+
+	private BookingResult(boolean booked, List<TimeSlot> availableSlots) {
+		this.booked = booked;
+		this.availableSlots = availableSlots;
+	}
+
+	public static BookingResult booked() {
+		return BOOKED;
+	}
+
+	public static BookingResult slotTaken(SlotOccupancy occupancy) {
+		return new BookingResult(false, TimeSlotFormatter.getAvailableSlots(occupancy));
+	}
+
+	public boolean isBooked() {
+		return booked;
+	}
+
+	public List<TimeSlot> getAvailableSlots() {
+		return availableSlots;
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.rmahler.petclinic.visit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Expiring holds on (vet, day, slot), placed while a clerk has a booking form open so
+ * that other clerks do not get offered the same slot. Holds are kept in a concurrent map
+ * and updated with compare-and-set operations only; expired holds are ignored on read
+ * and removed by {@link #sweep()}.
+ * <p>
+ * A holder has at most one hold: holding another slot releases the previous one. The
+ * number of holds is bounded as well, so a client cycling through hold tokens cannot
+ * grow the map without limit; the bound is checked before placing, and may be exceeded
+ * by the number of concurrent callers.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public class SlotHolds {
+
+	private final ConcurrentMap<Key, Hold> holds = new ConcurrentHashMap<>();
+
+	// the slot each holder holds; updates for one holder are serialized by compute
+	private final ConcurrentMap<String, Key> heldKeys = new ConcurrentHashMap<>();
+
+	private final Duration timeToLive;
+
+	private final int maxHolds;
+
+	private final Clock clock;
+
+	/**
+	 * @param maxHolds holds beyond this many are refused to new holders until expired
+	 * holds are swept
+	 */
+	public SlotHolds(Duration timeToLive, int maxHolds, Clock clock) {
+		this.timeToLive = timeToLive;
+		this.maxHolds = maxHolds;
+		this.clock = clock;
+	}
+
+	/**
+	 * Place or extend a hold, releasing any other hold of the same holder.
+	 * @param holder identifies the form holding the slot
+	 * @return true if the slot is now held by <code>holder</code>, false if someone else
+	 * holds it or too many slots are held
+	 */
+	public boolean hold(int vetId, LocalDate day, int slot, String holder) {
+		if (holds.size() >= maxHolds && !heldKeys.containsKey(holder)) {
+			sweep();
+			if (holds.size() >= maxHolds) {
+				return false;
+			}
+		}
+		Key key = new Key(vetId, day, slot);
+		long now = clock.millis();
+		Hold hold = new Hold(holder, now + timeToLive.toMillis());
+		Key held = heldKeys.compute(holder, (h, previous) -> {
+			if (!place(key, hold, now)) {
+				return previous;
+			}
+			if (previous != null && !previous.equals(key)) {
+				remove(previous, holder);
+			}
+			return key;
+		});
+		return key.equals(held) && isHeldBy(key, holder);
+	}
+
+	private boolean place(Key key, Hold hold, long now) {
+		while (true) {
+			Hold existing = holds.get(key);
+			if (existing == null) {
+				if (holds.putIfAbsent(key, hold) == null) {
+					return true;
+				}
+			}
+			else if (existing.holder.equals(hold.holder) || existing.isExpired(now)) {
+				if (holds.replace(key, existing, hold)) {
+					return true;
+				}
+			}
+			else {
+				return false;
+			}
+		}
+	}
+
+	private boolean isHeldBy(Key key, String holder) {
+		Hold hold = holds.get(key);
+		return hold != null && hold.holder.equals(holder);
+	}
+
+	private void remove(Key key, String holder) {
+		Hold hold = holds.get(key);
+		if (hold != null && hold.holder.equals(holder)) {
+			holds.remove(key, hold);
+		}
+	}
+
+	/**
+	 * Release the hold of the given holder, if any.
+	 */
+	public void release(String holder) {
+		Key key = heldKeys.remove(holder);
+		if (key != null) {
+			remove(key, holder);
+		}
+	}
+
+	/**
+	 * @param holder holds of this holder are not reported, may be null
+	 * @return true if the slot is held by someone other than <code>holder</code>
+	 */
+	public boolean isHeldByOther(int vetId, LocalDate day, int slot, String holder) {
+		Hold hold = holds.get(new Key(vetId, day, slot));
+		return hold != null && !hold.isExpired(clock.millis()) && !hold.holder.equals(holder);
+	}
+
+	/**
+	 * @param holder holds of this holder are not reported, may be null
+	 * @return the bitmask of slots of the vet on that day held by others, in the layout
+	 * of {@link SlotOccupancy#getMask()}
+	 */
+	public int heldMask(int vetId, LocalDate day, String holder) {
+		if (holds.isEmpty()) {
+			return 0;
+		}
+		int mask = 0;
+		for (int slot = SlotOccupancy.FIRST_SLOT; slot <= SlotOccupancy.LAST_SLOT; slot++) {
+			if (isHeldByOther(vetId, day, slot, holder)) {
+				mask |= 1 << slot;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Remove expired holds, and forget holders whose hold expired or was taken over.
+	 * @return the number of holds removed
+	 */
+	public int sweep() {
+		long now = clock.millis();
+		int removed = 0;
+		for (Map.Entry<Key, Hold> entry : holds.entrySet()) {
+			if (entry.getValue().isExpired(now) && holds.remove(entry.getKey(), entry.getValue())) {
+				removed++;
+			}
+		}
+		for (Map.Entry<String, Key> entry : heldKeys.entrySet()) {
+			if (!isHeldBy(entry.getValue(), entry.getKey())) {
+				heldKeys.remove(entry.getKey(), entry.getValue());
+			}
+		}
+		return removed;
+	}
+
+	public int size() {
+		return holds.size();
+	}
+
+	private static final class Hold {
+
+		private final String holder;
+
+		private final long expiresAt;
+
+		private Hold(String holder, long expiresAt) {
+			this.holder = holder;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return now >= expiresAt;
+		}
+
+	}
+
+	private static final class Key {
+
+		private final int vetId;
+
+		private final LocalDate day;
+
+		private final int slot;
+
+		private Key(int vetId, LocalDate day, int slot) {
+			this.vetId = vetId;
+			this.day = day;
+			this.slot = slot;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return vetId == other.vetId && slot == other.slot && day.equals(other.day);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(vetId, day, slot);
+		}
+
+	}
+
+}
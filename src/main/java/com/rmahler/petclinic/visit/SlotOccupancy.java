@@ -0,0 +1,94 @@
+package com.rmahler.petclinic.visit;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Immutable occupancy of the time slots of one vet on one day, stored as a bitmask where
+ * bit <code>n</code> is set when slot <code>n</code> is booked.
+ *
+ * @author Richard Mahler
+ */
+public final class SlotOccupancy implements Serializable {
+
+	public static final int FIRST_SLOT = 1;
+
+	public static final int LAST_SLOT = 9;
+
+	private static final int ALL_SLOTS = ((1 << (LAST_SLOT + 1)) - 1) & ~((1 << FIRST_SLOT) - 1);
+
+	public static final SlotOccupancy EMPTY = new SlotOccupancy(0);
+
+	private final int mask;
+
+	private SlotOccupancy(int mask) {
+		this.mask = mask;
+	}
+
+	public static SlotOccupancy ofMask(int mask) {
+		mask &= ALL_SLOTS;
+		return mask == 0 ? EMPTY : new SlotOccupancy(mask);
+	}
+
+	/**
+	 * @param filledSlots the booked slot numbers, slots out of range are ignored
+	 * @return the occupancy with exactly the given slots booked
+	 */
+	public static SlotOccupancy of(Collection<Integer> filledSlots) {
+		int mask = 0;
+		for (Integer slot : filledSlots) {
+			if (slot != null && isValidSlot(slot)) {
+				mask |= 1 << slot;
+			}
+		}
+		return ofMask(mask);
+	}
+
+	public static boolean isValidSlot(int slot) {
+		return slot >= FIRST_SLOT && slot <= LAST_SLOT;
+	}
+
+	public boolean isFilled(int slot) {
+		return isValidSlot(slot) && (mask & (1 << slot)) != 0;
+	}
+
+	public boolean isFull() {
+		return mask == ALL_SLOTS;
+	}
+
+	public int getFilledCount() {
+		return Integer.bitCount(mask);
+	}
+
+	public int getFreeCount() {
+		return (LAST_SLOT - FIRST_SLOT + 1) - getFilledCount();
+	}
+
+	public int getMask() {
+		return mask;
+	}
+
+	public SlotOccupancy withFilled(int slot) {
+		return isValidSlot(slot) ? ofMask(mask | (1 << slot)) : this;
+	}
+
+	public SlotOccupancy withFreed(int slot) {
+		return isValidSlot(slot) ? ofMask(mask & ~(1 << slot)) : this;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof SlotOccupancy && ((SlotOccupancy) obj).mask == mask;
+	}
+
+	@Override
+	public int hashCode() {
+		return mask;
+	}
+
+	@Override
+	public String toString() {
+		return "SlotOccupancy[" + Integer.toBinaryString(mask) + "]";
+	}
+
+}
@@ -0,0 +1,242 @@
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Bounded in-memory cache of the {@link SlotOccupancy} of each vet and day within the
+ * booking horizon (today up to <code>horizonDays</code> ahead). Other days are never
+ * cached.
+ * <p>
+ * Entries are loaded lazily on a miss and updated in place when a visit is booked or
+ * cancelled. Loads run without holding any lock of the map and the result is then added
+ * with <code>putIfAbsent</code>, so concurrent misses for the same vet and day may load
+ * it more than once. An update bumps a generation, striped by vet and day, before
+ * touching the map; a load that sees the generation move while it ran drops what it
+ * added, since the update may have missed it, unless the update was already applied on
+ * top of it. Since filling or freeing a slot is idempotent, updates that the load already
+ * saw are harmless and none are lost.
+ * </p>
+ * <p>
+ * Hits, misses and evictions are counted. Every <code>verifyEvery</code>th hit is
+ * checked against the data store by calling the loader again; misses, which were just
+ * loaded, never are. A mismatch is counted as stale, the entry is dropped and the loaded
+ * occupancy returned. Callers that find a stale entry by other means report it through
+ * {@link #recordStale()}.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+public class SlotOccupancyCache {
+
+	private final Map<Key, SlotOccupancy> entries = new ConcurrentHashMap<>();
+
+	// bumped before each update, striped by key; see get
+	private final AtomicLongArray generations = new AtomicLongArray(256);
+
+	private final int maxEntries;
+
+	private final int horizonDays;
+
+	private final int verifyEvery;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder verifications = new LongAdder();
+
+	// hits since the cache was created, only used to pick the hits to verify
+	private final AtomicLong verifiableHits = new AtomicLong();
+
+	private final LongAdder staleEntries = new LongAdder();
+
+	public SlotOccupancyCache(int maxEntries, int horizonDays, int verifyEvery) {
+		this.maxEntries = maxEntries;
+		this.horizonDays = horizonDays;
+		this.verifyEvery = verifyEvery;
+	}
+
+	/**
+	 * Return the cached occupancy, loading it on a miss.
+	 * @param vetId the vet
+	 * @param day the day
+	 * @param loader reads the occupancy from the data store
+	 * @return the occupancy of the vet on that day
+	 */
+	public SlotOccupancy get(int vetId, LocalDate day, BiFunction<Integer, LocalDate, SlotOccupancy> loader) {
+		if (!isWithinHorizon(day)) {
+			misses.increment();
+			return loader.apply(vetId, day);
+		}
+		Key key = new Key(vetId, day);
+		SlotOccupancy occupancy = entries.get(key);
+		if (occupancy != null) {
+			hits.increment();
+			return shouldVerifyHit() ? verify(key, occupancy, loader) : occupancy;
+		}
+		misses.increment();
+		if (entries.size() >= maxEntries && !evictPastDays()) {
+			return loader.apply(vetId, day);
+		}
+		int stripe = stripe(key);
+		long generation = generations.get(stripe);
+		SlotOccupancy loaded = loader.apply(vetId, day);
+		SlotOccupancy existing = entries.putIfAbsent(key, loaded);
+		if (existing != null) {
+			return existing;
+		}
+		if (generations.get(stripe) != generation) {
+			// an update ran during the load and may have found no entry to apply to
+			entries.remove(key, loaded);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Mark a slot as booked, if the vet and day are cached.
+	 */
+	public void fill(int vetId, LocalDate day, int slot) {
+		Key key = beginUpdate(vetId, day);
+		entries.computeIfPresent(key, (k, occupancy) -> occupancy.withFilled(slot));
+	}
+
+	/**
+	 * Mark a slot as free, if the vet and day are cached.
+	 */
+	public void free(int vetId, LocalDate day, int slot) {
+		Key key = beginUpdate(vetId, day);
+		entries.computeIfPresent(key, (k, occupancy) -> occupancy.withFreed(slot));
+	}
+
+	public void invalidate(int vetId, LocalDate day) {
+		entries.remove(beginUpdate(vetId, day));
+	}
+
+	private Key beginUpdate(int vetId, LocalDate day) {
+		Key key = new Key(vetId, day);
+		generations.incrementAndGet(stripe(key));
+		return key;
+	}
+
+	private int stripe(Key key) {
+		return (key.hashCode() & Integer.MAX_VALUE) % generations.length();
+	}
+
+	/**
+	 * Drop the cached occupancy of the vet and day if it differs from the given one,
+	 * read from the data store.
+	 * @return true if a stale entry was dropped
+	 */
+	public boolean invalidateIfStale(int vetId, LocalDate day, SlotOccupancy current) {
+		Key key = new Key(vetId, day);
+		SlotOccupancy cached = entries.get(key);
+		return cached != null && !cached.equals(current) && entries.remove(key, cached);
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	private boolean shouldVerifyHit() {
+		return verifyEvery > 0 && verifiableHits.incrementAndGet() % verifyEvery == 0;
+	}
+
+	private SlotOccupancy verify(Key key, SlotOccupancy cached,
+			BiFunction<Integer, LocalDate, SlotOccupancy> loader) {
+		verifications.increment();
+		SlotOccupancy current = loader.apply(key.vetId, key.day);
+		if (!current.equals(cached)) {
+			staleEntries.increment();
+			entries.remove(key, cached);
+		}
+		return current;
+	}
+
+	public void recordStale() {
+		staleEntries.increment();
+	}
+
+	private boolean isWithinHorizon(LocalDate day) {
+		LocalDate today = LocalDate.now();
+		return day != null && !day.isBefore(today) && !day.isAfter(today.plusDays(horizonDays));
+	}
+
+	private boolean evictPastDays() {
+		LocalDate today = LocalDate.now();
+		entries.keySet().removeIf(key -> {
+			boolean past = key.day.isBefore(today);
+			if (past) {
+				evictions.increment();
+			}
+			return past;
+		});
+		return entries.size() < maxEntries;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public long getVerificationCount() {
+		return verifications.sum();
+	}
+
+	public long getStaleCount() {
+		return staleEntries.sum();
+	}
+
+	private static final class Key {
+
+		private final int vetId;
+
+		private final LocalDate day;
+
+		private Key(int vetId, LocalDate day) {
+			this.vetId = vetId;
+			this.day = day;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return vetId == other.vetId && day.equals(other.day);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(vetId, day);
+		}
+
+	}
+
+}
@@ -1,9 +1,26 @@
 package com.rmahler.petclinic.visit;
 
+/**
+ * Immutable description of a bookable time slot. Instances are shared, see
+ * {@link TimeSlotFormatter#getTimeSlot(int)}.
+ */
 public class TimeSlot {
 
-	public String description;
+	public final String description;
 
-	public Integer slotNum;
+	public final Integer slotNum;
+
+	TimeSlot(int slotNum, String description) {
+		this.slotNum = slotNum;
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Integer getSlotNum() {
+		return slotNum;
+	}
 
 }
@@ -11,26 +11,51 @@ import java.util.Collection;
  */
 public class TimeSlotFormatter {
 
+	// shared descriptors, indexed by slot number
+	private static final TimeSlot[] TIME_SLOTS = new TimeSlot[SlotOccupancy.LAST_SLOT + 1];
+
+	static {
+		for (int i = SlotOccupancy.FIRST_SLOT; i <= SlotOccupancy.LAST_SLOT; i++) {
+			TIME_SLOTS[i] = new TimeSlot(i, formatTimeSlotDescription(i));
+		}
+	}
+
 	private TimeSlotFormatter() {
 
 	}
 
 	public static ArrayList<TimeSlot> getAvailableSlots(Collection<Integer> filledSlots) {
-		ArrayList<TimeSlot> slots = new ArrayList<>();
-
-		for (Integer i = 1; i < 10; i++) {
-			if (!filledSlots.contains(i)) {
-				TimeSlot timeSlot = new TimeSlot();
-				timeSlot.description = getTimeSlotDescription(i);
-				timeSlot.slotNum = i;
-				slots.add(timeSlot);
+		return getAvailableSlots(SlotOccupancy.of(filledSlots));
+	}
+
+	/**
+	 * @param occupancy the booked slots of a vet on a day
+	 * @return the shared descriptors of the free slots, in slot order
+	 */
+	public static ArrayList<TimeSlot> getAvailableSlots(SlotOccupancy occupancy) {
+		ArrayList<TimeSlot> slots = new ArrayList<>(occupancy.getFreeCount());
+
+		for (int i = SlotOccupancy.FIRST_SLOT; i <= SlotOccupancy.LAST_SLOT; i++) {
+			if (!occupancy.isFilled(i)) {
+				slots.add(TIME_SLOTS[i]);
 			}
 		}
 
 		return slots;
 	}
 
+	public static TimeSlot getTimeSlot(int ts) {
+		return SlotOccupancy.isValidSlot(ts) ? TIME_SLOTS[ts] : null;
+	}
+
 	public static String getTimeSlotDescription(int ts) {
+		if (SlotOccupancy.isValidSlot(ts)) {
+			return TIME_SLOTS[ts].description;
+		}
+		return formatTimeSlotDescription(ts);
+	}
+
+	private static String formatTimeSlotDescription(int ts) {
 		if (ts <= 4) {
 			return String.format("%d AM to %d AM", (7 + ts), (8 + ts));
 		}
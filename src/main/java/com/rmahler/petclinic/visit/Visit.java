@@ -16,6 +16,7 @@
 package com.rmahler.petclinic.visit;
 
 import com.rmahler.petclinic.model.BaseEntity;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -58,6 +59,12 @@ public class Visit extends BaseEntity {
 	@Column(name = "time_slot", nullable = false)
 	private Integer timeSlot;
 
+	// owner of the pet, known when the visit was added to a loaded pet; set through
+	// assignOwnerId rather than a setter, so it cannot be bound from a request
+	@Transient
+	@Setter(AccessLevel.NONE)
+	private Integer ownerId;
+
 	@Transient
 	private Boolean isCurrent;
 
@@ -71,6 +78,10 @@ public class Visit extends BaseEntity {
 		this.date = LocalDate.now();
 	}
 
+	public void assignOwnerId(Integer ownerId) {
+		this.ownerId = ownerId;
+	}
+
 	// called by the ui
 	public Boolean getIsCurrent() {
 		if (isCurrent == null) {
@@ -15,16 +15,18 @@
  */
 package com.rmahler.petclinic.visit;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
 import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.service.RequestIdentityMap;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
@@ -44,9 +46,12 @@ class VisitController {
 
 	private final ClinicService clinicService;
 
+	private final RequestIdentityMap identityMap;
+
 	@Autowired
-	public VisitController(ClinicService clinicService) {
+	public VisitController(ClinicService clinicService, RequestIdentityMap identityMap) {
 		this.clinicService = clinicService;
+		this.identityMap = identityMap;
 	}
 
 	@InitBinder
@@ -54,10 +59,16 @@ class VisitController {
 		dataBinder.setDisallowedFields("id");
 	}
 
+	/**
+	 * The vets come from the shared {@link VetDirectory} snapshot, so this does not query
+	 * the database unless a vet was saved since the last request.
+	 */
 	@ModelAttribute("vets")
 	public Collection<Vet> findOwner(Map<String, Object> model) {
+		VetDirectory directory = this.clinicService.getVetDirectory();
+		model.put("vetDirectory", directory);
 
-		Collection<Vet> vets = this.clinicService.findVets();
+		List<Vet> vets = directory.getVets();
 		model.put("selectedvet", vets.iterator().next());
 
 		return vets;
@@ -72,16 +83,26 @@ class VisitController {
 	 */
 	@ModelAttribute("visit")
 	public Visit loadPetWithVisit(@PathVariable("petId") int petId, Map<String, Object> model) {
-		Pet pet = this.clinicService.findPetById(petId);
-		Collection<Visit> visits = clinicService.findVisitsByPetId(petId);
+		Pet pet = this.identityMap.findPetById(petId);
+		Map<Integer, List<Visit>> visitsByPetId = clinicService.findVisitsByPetIds(Collections.singleton(petId));
 
-		pet.setVisitsInternal(visits);
+		pet.setVisitsInternal(visitsByPetId.getOrDefault(petId, Collections.emptyList()));
 		model.put("pet", pet);
 		Visit visit = new Visit();
 		pet.addVisit(visit);
 		return visit;
 	}
 
+	/**
+	 * Identifies the open booking form, so that the slot it holds is still offered to it.
+	 * @param holdToken - the token posted back by the form, null for a new form
+	 * @return the token of the form
+	 */
+	@ModelAttribute("holdToken")
+	public String holdToken(@RequestParam(value = "holdToken", required = false) String holdToken) {
+		return holdToken == null || holdToken.isEmpty() ? UUID.randomUUID().toString() : holdToken;
+	}
+
 	// Spring MVC calls method loadPetWithVisit(...) before initNewVisitForm is called
 	@GetMapping("/owners/*/pets/{petId}/visits/new")
 	public String initNewVisitForm(@PathVariable("petId") int petId, Map<String, Object> model) {
@@ -92,8 +113,13 @@ class VisitController {
 	@PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
 	public String processNewVisitForm(@Valid Visit visit, BindingResult result,
 			@RequestParam(value = "action", required = true) String action,
-			@RequestParam(value = "vetSelection", required = true) String selectedVet, Map<String, Object> model) {
+			@RequestParam(value = "vetSelection", required = true) String selectedVet,
+			@ModelAttribute("holdToken") String holdToken, Map<String, Object> model) {
 
+		if (action.equals("cancel")) {
+			clinicService.releaseSlotHolds(holdToken);
+			return "redirect:/owners/{ownerId}";
+		}
 		if (selectedVet.isEmpty()) {
 			return PETS_CREATE_OR_UPDATE_VISITS_FORM;
 		}
@@ -103,15 +129,18 @@ class VisitController {
 			int vetId = Integer.parseInt(selectedVet);
 			model.put("selectedvet", getVetFromModelMap(model, vetId));
 
+			// a new search drops whatever this form held before
+			clinicService.releaseSlotHolds(holdToken);
 			LocalDate visitDate = visit.getDate();
-			if (isVisitDayUnavailable(visitDate)) {
+			if (BookingCalendar.isVisitDayUnavailable(visitDate)) {
 				model.put("availableslots", Collections.emptyList());
 				return PETS_CREATE_OR_UPDATE_VISITS_FORM;
 			}
 
-			Collection<Integer> slotIds = clinicService.findFilledSlots(vetId, visit.getDate());
-			Collection<TimeSlot> slots = TimeSlotFormatter.getAvailableSlots(slotIds);
+			SlotOccupancy occupancy = clinicService.findSlotAvailability(vetId, visitDate, holdToken);
+			Collection<TimeSlot> slots = TimeSlotFormatter.getAvailableSlots(occupancy);
 			model.put("availableslots", slots);
+			holdSlot(visit, slots, holdToken);
 
 			return PETS_CREATE_OR_UPDATE_VISITS_FORM;
 		}
@@ -119,31 +148,49 @@ class VisitController {
 			if (result.hasErrors()) {
 				return PETS_CREATE_OR_UPDATE_VISITS_FORM;
 			}
-			this.clinicService.saveVisit(visit);
+			BookingResult booking = this.clinicService.bookVisit(visit, holdToken);
+			if (!booking.isBooked()) {
+				// someone else took the slot, offer the ones still free
+				result.rejectValue("timeSlot", "slot_taken", "slot is no longer available");
+				model.put("selectedvet", getVetFromModelMap(model, visit.getVetId()));
+				model.put("availableslots", booking.getAvailableSlots());
+				return PETS_CREATE_OR_UPDATE_VISITS_FORM;
+			}
 			return "redirect:/owners/{ownerId}";
 		}
 	}
 
-	// can't book visit in the past, and assume no same day appointments nor weekends
-	private boolean isVisitDayUnavailable(LocalDate visitDay) {
-		LocalDate currentDay = LocalDate.now();
-		boolean isWeekend = visitDay.getDayOfWeek() == DayOfWeek.SATURDAY
-				|| visitDay.getDayOfWeek() == DayOfWeek.SUNDAY;
-
-		return visitDay.isBefore(currentDay) || visitDay.isEqual(currentDay) || isWeekend;
-	}
-
 	@GetMapping("/owners/*/pets/{petId}/visits")
 	public String showVisits(@PathVariable int petId, Map<String, Object> model) {
-		model.put("visits", this.clinicService.findPetById(petId).getVisits());
+		// the pet is the one loaded for the "visit" model attribute, minus the blank visit
+		List<Visit> visits = this.identityMap.findPetById(petId).getVisits().stream()
+				.filter(visit -> !visit.isNew()).collect(Collectors.toList());
+		model.put("visits", visits);
 		return "visitList";
 	}
 
-	private Vet getVetFromModelMap(Map<String, Object> model, Integer id) {
-		@SuppressWarnings("unchecked")
-		List<Vet> allVets = (List<Vet>) model.get("vets");
+	/**
+	 * Hold the slot picked on the form if it is still offered, otherwise the first slot
+	 * offered, and preselect it. The hold is released on save, cancel or expiry.
+	 */
+	private void holdSlot(Visit visit, Collection<TimeSlot> slots, String holdToken) {
+		List<Integer> candidates = new ArrayList<>();
+		if (visit.getTimeSlot() != null) {
+			candidates.add(visit.getTimeSlot());
+		}
+		slots.forEach(slot -> candidates.add(slot.getSlotNum()));
+		for (Integer slot : candidates) {
+			boolean offered = slots.stream().anyMatch(s -> s.getSlotNum().equals(slot));
+			if (offered && clinicService.holdSlot(visit.getVetId(), visit.getDate(), slot, holdToken)) {
+				visit.setTimeSlot(slot);
+				return;
+			}
+		}
+	}
 
-		return allVets.stream().filter(v -> v.getId().equals(id)).findFirst().get();
+	private Vet getVetFromModelMap(Map<String, Object> model, Integer id) {
+		VetDirectory directory = (VetDirectory) model.get("vetDirectory");
+		return directory.findById(id);
 	}
 
 }
@@ -16,12 +16,14 @@
 package com.rmahler.petclinic.visit;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 import com.rmahler.petclinic.model.BaseEntity;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -48,8 +50,41 @@ public interface VisitRepository extends Repository<Visit, Integer> {
 
 	List<Visit> findByPetId(Integer petId);
 
+	/**
+	 * Retrieve the <code>Visit</code>s of several pets in a single query.
+	 * @param petIds the ids of the pets whose visits should be loaded
+	 * @return the visits of all given pets (or an empty List if none found)
+	 */
+	@Query("SELECT visit FROM Visit visit WHERE visit.petId IN :petIds")
+	@Transactional(readOnly = true)
+	List<Visit> findByPetIdIn(@Param("petIds") Collection<Integer> petIds);
+
+	/**
+	 * Retrieve a <code>Visit</code> together with the id of its pet's owner.
+	 * @param visitId the id of the visit
+	 * @return one Object[] of (visit, ownerId), or an empty List if not found
+	 */
+	@Query("SELECT visit, pet.owner.id FROM Visit visit, Pet pet "
+			+ "WHERE pet.id = visit.petId AND visit.id = :id")
+	@Transactional(readOnly = true)
+	List<Object[]> findWithOwnerIdById(@Param("id") Integer visitId);
+
 	void deleteById(int id);
 
+	/**
+	 * Retrieve the booked (vetId, date, timeSlot) triples of the given vets within a date
+	 * range, in a single query.
+	 * @param vetIds the vets to check
+	 * @param from first day, inclusive
+	 * @param to last day, inclusive
+	 * @return one Object[] of (vetId, date, timeSlot) per booked slot
+	 */
+	@Query("SELECT visit.vetId, visit.date, visit.timeSlot FROM Visit visit "
+			+ "WHERE visit.vetId IN :vetIds AND visit.date BETWEEN :from AND :to")
+	@Transactional(readOnly = true)
+	List<Object[]> findFilledTimeSlots(@Param("vetIds") Collection<Integer> vetIds, @Param("from") LocalDate from,
+			@Param("to") LocalDate to);
+
 	@Query("SELECT timeSlot FROM Visit WHERE date = :dt and vetId = :vtId")
 	@Transactional(readOnly = true)
 	List<Integer> getFilledTimeSlots(LocalDate dt, Integer vtId);
@@ -5,14 +5,15 @@ DROP TABLE visits IF EXISTS;
 DROP TABLE pets IF EXISTS;
 DROP TABLE types IF EXISTS;
 DROP TABLE owners IF EXISTS;
+DROP TABLE generator_runs IF EXISTS;
 
 
 CREATE TABLE vets (
   id         INTEGER IDENTITY PRIMARY KEY,
-  first_name VARCHAR(30),
-  last_name  VARCHAR(30)
+  first_name VARCHAR_IGNORECASE(30),
+  last_name  VARCHAR_IGNORECASE(30)
 );
-CREATE INDEX vets_last_name ON vets (last_name);
+CREATE INDEX vets_last_name ON vets (last_name, first_name);
 
 CREATE TABLE specialties (
   id   INTEGER IDENTITY PRIMARY KEY,
@@ -35,13 +36,13 @@ CREATE INDEX types_name ON types (name);
 
 CREATE TABLE owners (
   id         INTEGER IDENTITY PRIMARY KEY,
-  first_name VARCHAR(30),
+  first_name VARCHAR_IGNORECASE(30),
   last_name  VARCHAR_IGNORECASE(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
   telephone  VARCHAR(20)
 );
-CREATE INDEX owners_last_name ON owners (last_name);
+CREATE INDEX owners_last_name ON owners (last_name, first_name);
 
 CREATE TABLE pets (
   id         INTEGER IDENTITY PRIMARY KEY,
@@ -57,8 +58,23 @@ CREATE INDEX pets_name ON pets (name);
 CREATE TABLE visits (
   id          INTEGER IDENTITY PRIMARY KEY,
   pet_id      INTEGER NOT NULL,
+  vet_id      INTEGER NOT NULL,
   visit_date  DATE,
+  time_slot   INTEGER NOT NULL,
   description VARCHAR(255)
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets (id);
+ALTER TABLE visits ADD CONSTRAINT fk_visits_vets FOREIGN KEY (vet_id) REFERENCES vets (id);
+ALTER TABLE visits ADD CONSTRAINT visits_vet_slot UNIQUE (vet_id, visit_date, time_slot);
 CREATE INDEX visits_pet_id ON visits (pet_id);
+
+CREATE TABLE generator_runs (
+  seed           BIGINT NOT NULL,
+  owners         INTEGER NOT NULL,
+  first_owner_id INTEGER NOT NULL,
+  first_pet_id   INTEGER NOT NULL,
+  first_vet_id   INTEGER NOT NULL,
+  first_visit_id INTEGER NOT NULL,
+  completed      BOOLEAN NOT NULL,
+  PRIMARY KEY (seed, owners)
+);
@@ -2,7 +2,7 @@ CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
-  INDEX(last_name)
+  INDEX vets_full_name (last_name, first_name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS specialties (
@@ -32,7 +32,7 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  INDEX owners_full_name (last_name, first_name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -57,3 +57,30 @@ CREATE TABLE IF NOT EXISTS visits (
   UNIQUE(vet_id, visit_date, time_slot),
   INDEX(vet_id, visit_date, time_slot)
 ) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS generator_runs (
+  seed BIGINT NOT NULL,
+  owners INT(4) UNSIGNED NOT NULL,
+  first_owner_id INT(4) UNSIGNED NOT NULL,
+  first_pet_id INT(4) UNSIGNED NOT NULL,
+  first_vet_id INT(4) UNSIGNED NOT NULL,
+  first_visit_id INT(4) UNSIGNED NOT NULL,
+  completed BOOLEAN NOT NULL,
+  PRIMARY KEY (seed, owners)
+) engine=InnoDB;
+
+-- Databases created before the full name indexes only have INDEX(last_name); MySQL has no
+-- CREATE INDEX IF NOT EXISTS, so add them through a guarded prepared statement.
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX vets_full_name ON vets (last_name, first_name)', 'SELECT 1')
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE() AND table_name = 'vets' AND index_name = 'vets_full_name');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX owners_full_name ON owners (last_name, first_name)', 'SELECT 1')
+  FROM information_schema.statistics
+  WHERE table_schema = DATABASE() AND table_name = 'owners' AND index_name = 'owners_full_name');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
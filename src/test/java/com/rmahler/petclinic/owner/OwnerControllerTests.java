@@ -28,6 +28,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import com.rmahler.petclinic.owner.OwnerDetails.PetDetails;
 import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.pet.PetType;
 import com.rmahler.petclinic.service.ClinicService;
@@ -35,15 +36,24 @@ import com.rmahler.petclinic.visit.Visit;
 import com.rmahler.petclinic.visit.VisitRepository;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
@@ -101,6 +111,10 @@ class OwnerControllerTests {
 		given(this.visits.findByPetId(max.getId())).willReturn(Collections.singletonList(visit));
 		given(this.clinicService.findOwnerById(TEST_OWNER_ID)).willReturn(george);
 		given(this.clinicService.findVisitsByPetId(TEST_PET_ID)).willReturn(Collections.singletonList(visit));
+		given(this.clinicService.findVisitsByPetIds(Collections.singletonList(TEST_PET_ID)))
+				.willReturn(Collections.singletonMap(TEST_PET_ID, Collections.singletonList(visit)));
+		given(this.clinicService.findOwnerDetails(TEST_OWNER_ID)).willReturn(
+				OwnerDetails.of(george, Collections.singletonMap(TEST_PET_ID, Collections.singletonList(visit))));
 	}
 
 	@Test
@@ -116,6 +130,17 @@ class OwnerControllerTests {
 				.andExpect(status().is3xxRedirection());
 	}
 
+	@Test
+	void testProcessCreationFormRejectsDuplicateFullName() throws Exception {
+		given(this.clinicService.ownerExistsWithFullName("George", "Franklin", -1)).willReturn(true);
+		mockMvc.perform(post("/owners/new").param("firstName", " George").param("lastName", "Franklin ")
+				.param("address", "110 W. Liberty St.").param("city", "Madison").param("telephone", "6085551023"))
+				.andExpect(status().isOk())
+				.andExpect(model().attributeHasFieldErrorCode("owner", "lastName", "duplicate_full_name"))
+				.andExpect(view().name("owners/createOrUpdateOwnerForm"));
+		verify(clinicService, never()).saveOwner(any(Owner.class));
+	}
+
 	@Test
 	void testProcessCreationFormHasErrors() throws Exception {
 		mockMvc.perform(
@@ -134,18 +159,61 @@ class OwnerControllerTests {
 
 	@Test
 	void testProcessFindFormSuccess() throws Exception {
-		given(this.clinicService.findOwnerByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
-		mockMvc.perform(get("/owners")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"));
+		OwnerSummary georgeSummary = summaryOf(george);
+		georgeSummary.setPetNames(Collections.singletonList("Max"));
+		given(this.clinicService.findOwnerPageByLastName("", "", 0, 21))
+				.willReturn(Lists.newArrayList(georgeSummary, summaryOf(new Owner())));
+		mockMvc.perform(get("/owners")).andExpect(status().isOk()).andExpect(view().name("owners/ownersList"))
+				.andExpect(model().attributeDoesNotExist("nextId"))
+				.andExpect(content().string(containsString("<td>Max</td>")));
+	}
+
+	@Test
+	void testProcessFindFormReturnsNextPageCursor() throws Exception {
+		Owner betty = new Owner();
+		betty.setId(2);
+		betty.setLastName("Davis");
+		Owner harold = new Owner();
+		harold.setId(4);
+		harold.setLastName("Davis");
+		given(this.clinicService.findOwnerPageByLastName("", "Coleman", 6, 3))
+				.willReturn(Lists.newArrayList(summaryOf(betty), summaryOf(harold), summaryOf(george)));
+		mockMvc.perform(get("/owners").param("afterLastName", "Coleman").param("afterId", "6").param("size", "2"))
+				.andExpect(status().isOk()).andExpect(view().name("owners/ownersList"))
+				.andExpect(model().attribute("selections", hasSize(2)))
+				.andExpect(model().attribute("nextLastName", "Davis")).andExpect(model().attribute("nextId", 4));
+	}
+
+	@Test
+	void testProcessFindFormCapsPageSize() throws Exception {
+		mockMvc.perform(get("/owners").param("size", "100000")).andExpect(status().isOk());
+		verify(clinicService, times(1)).findOwnerPageByLastName("", "", 0, 101);
 	}
 
 	@Test
 	void testProcessFindFormByLastName() throws Exception {
-		given(this.clinicService.findOwnerByLastName(george.getLastName()))
-				.willReturn(Collections.singletonList(george));
+		given(this.clinicService.findOwnerPageByLastName(george.getLastName(), "", 0, 21))
+				.willReturn(Collections.singletonList(summaryOf(george)));
 		mockMvc.perform(get("/owners").param("lastName", "Franklin")).andExpect(status().is3xxRedirection())
 				.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
 	}
 
+	@Test
+	void testProcessFindFormUsesDirectoryIndexForSingleMatch() throws Exception {
+		given(this.clinicService.findOwnerIdsByLastNamePrefix("Frank", 2))
+				.willReturn(Collections.singletonList(TEST_OWNER_ID));
+		mockMvc.perform(get("/owners").param("lastName", "Frank")).andExpect(status().is3xxRedirection())
+				.andExpect(view().name("redirect:/owners/" + TEST_OWNER_ID));
+		verify(clinicService, never()).findOwnerPageByLastName(anyString(), anyString(), anyInt(), anyInt());
+	}
+
+	@Test
+	void testFindLastNames() throws Exception {
+		given(this.clinicService.findOwnerLastNamesByPrefix("Fr", 10)).willReturn(Collections.singletonList("Franklin"));
+		mockMvc.perform(get("/owners/lastNames").param("prefix", "Fr")).andExpect(status().isOk())
+				.andExpect(content().json("[\"Franklin\"]"));
+	}
+
 	@Test
 	void testProcessFindFormNoOwnersFound() throws Exception {
 		mockMvc.perform(get("/owners").param("lastName", "Unknown Surname")).andExpect(status().isOk())
@@ -193,13 +261,13 @@ class OwnerControllerTests {
 				.andExpect(model().attribute("owner", hasProperty("city", is("Madison"))))
 				.andExpect(model().attribute("owner", hasProperty("telephone", is("6085551023"))))
 				.andExpect(model().attribute("owner", hasProperty("pets", not(empty()))))
-				.andExpect(model().attribute("owner", hasProperty("pets", new BaseMatcher<List<Pet>>() {
+				.andExpect(model().attribute("owner", hasProperty("pets", new BaseMatcher<List<PetDetails>>() {
 
 					@Override
 					public boolean matches(Object item) {
 						@SuppressWarnings("unchecked")
-						List<Pet> pets = (List<Pet>) item;
-						Pet pet = pets.get(0);
+						List<PetDetails> pets = (List<PetDetails>) item;
+						PetDetails pet = pets.get(0);
 						if (pet.getVisits().isEmpty()) {
 							return false;
 						}
@@ -213,6 +281,23 @@ class OwnerControllerTests {
 				}))).andExpect(view().name("owners/ownerDetails"));
 	}
 
+	@Test
+	void testShowOwnerRendersDetailsWithoutLoadingEntities() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID)).andExpect(status().isOk())
+				.andExpect(view().name("owners/ownerDetails"))
+				.andExpect(model().attribute("pets", hasSize(1)))
+				.andExpect(model().attribute("pets", contains(hasProperty("type", is("dog")))));
+
+		verify(clinicService, times(1)).findOwnerDetails(TEST_OWNER_ID);
+		verify(clinicService, never()).findOwnerById(anyInt());
+		verify(clinicService, never()).findVisitsByPetIds(anyCollection());
+	}
+
+	@Test
+	void testShowUnknownOwner() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 99)).andExpect(status().isNotFound());
+	}
+
 	@Test
 	void testCancelPetVisit() throws Exception {
 		mockMvc.perform(post("/owners/{ownerId}/visit/cancel/{visitId}", TEST_OWNER_ID, TEST_VISIT_ID))
@@ -221,4 +306,9 @@ class OwnerControllerTests {
 		verify(clinicService, times(1)).cancelVisit(TEST_VISIT_ID);
 	}
 
+	private static OwnerSummary summaryOf(Owner owner) {
+		return new OwnerSummary(owner.getId(), owner.getFirstName(), owner.getLastName(), owner.getAddress(),
+				owner.getCity(), owner.getTelephone());
+	}
+
 }
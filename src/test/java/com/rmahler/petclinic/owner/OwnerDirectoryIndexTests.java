@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link OwnerDirectoryIndex}
+ *
+ * @author Richard Mahler
+ */
+class OwnerDirectoryIndexTests {
+
+	private OwnerDirectoryIndex index;
+
+	@BeforeEach
+	void setup() {
+		index = new OwnerDirectoryIndex();
+		index.add("Davis", 4);
+		index.add("Davis", 2);
+		index.add("Franklin", 1);
+		index.add("Black", 7);
+		index.add("davies", 9);
+	}
+
+	@Test
+	void shouldFindOwnerIdsByPrefixIgnoringCase() {
+		assertThat(index.findOwnerIds("DAV", 10)).containsExactly(9, 2, 4);
+		assertThat(index.findOwnerIds("davis", 10)).containsExactly(2, 4);
+		assertThat(index.findOwnerIds("", 10)).containsExactly(7, 9, 2, 4, 1);
+		assertThat(index.findOwnerIds("Smith", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldFindOwnerIdsOnlyIfCaseMatches() {
+		assertThat(index.findOwnerIdsMatchingCase("Davis", 10)).containsExactly(2, 4);
+		assertThat(index.findOwnerIdsMatchingCase(" Frank", 10)).containsExactly(1);
+		assertThat(index.findOwnerIdsMatchingCase("Dav", 10)).isEmpty();
+		assertThat(index.findOwnerIdsMatchingCase("davis", 10)).isEmpty();
+	}
+
+	@Test
+	void shouldLimitResults() {
+		assertThat(index.findOwnerIds("", 2)).containsExactly(7, 9);
+		assertThat(index.findLastNames("d", 1)).containsExactly("davies");
+	}
+
+	@Test
+	void shouldFindDistinctLastNames() {
+		assertThat(index.findLastNames("d", 10)).containsExactly("davies", "Davis");
+	}
+
+	@Test
+	void shouldMoveOwnerOnRename() {
+		index.remove("Franklin", 1);
+		index.add("Frank", 1);
+		assertThat(index.findOwnerIds("Franklin", 10)).isEmpty();
+		assertThat(index.findOwnerIds("Frank", 10)).containsExactly(1);
+		assertThat(index.getOwnerCount()).isEqualTo(5);
+	}
+
+	@Test
+	void shouldIgnoreDuplicateAdds() {
+		index.add("Davis", 2);
+		assertThat(index.findOwnerIds("Davis", 10)).containsExactly(2, 4);
+		assertThat(index.getOwnerCount()).isEqualTo(5);
+	}
+
+	@Test
+	void shouldKeepCountUnderConcurrentUpdatesOfSameName() throws Exception {
+		OwnerDirectoryIndex index = new OwnerDirectoryIndex();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int first = t * 1_000;
+				writers.add(executor.submit(() -> {
+					for (int id = first; id < first + 1_000; id++) {
+						index.add("Davis", id);
+						index.add("Davis", id);
+						if (id % 2 == 0) {
+							index.remove("Davis", id);
+							index.remove("Davis", id);
+						}
+					}
+				}));
+			}
+			for (Future<?> writer : writers) {
+				writer.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(index.findOwnerIds("Davis", Integer.MAX_VALUE)).hasSize(4_000);
+		assertThat(index.getOwnerCount()).isEqualTo(4_000);
+	}
+
+	@Test
+	void shouldReportMemoryPerOwner() {
+		assertThat(index.getEstimatedBytesPerOwner()).isPositive();
+		assertThat(new OwnerDirectoryIndex().getEstimatedBytesPerOwner()).isZero();
+	}
+
+}
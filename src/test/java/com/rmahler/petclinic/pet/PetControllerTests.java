@@ -16,7 +16,11 @@
 
 package com.rmahler.petclinic.pet;
 
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -31,9 +35,11 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import com.rmahler.petclinic.owner.Owner;
 import com.rmahler.petclinic.owner.OwnerRepository;
 import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.service.RequestIdentityMap;
 import org.springframework.test.web.servlet.MockMvc;
 
 /**
@@ -43,6 +49,7 @@ import org.springframework.test.web.servlet.MockMvc;
  */
 @WebMvcTest(value = PetController.class,
 		includeFilters = @ComponentScan.Filter(value = PetTypeFormatter.class, type = FilterType.ASSIGNABLE_TYPE))
+@Import(RequestIdentityMap.class)
 class PetControllerTests {
 
 	private static final int TEST_OWNER_ID = 1;
@@ -104,6 +111,22 @@ class PetControllerTests {
 				.andExpect(view().name("pets/createOrUpdatePetForm"));
 	}
 
+	@Test
+	void testInitUpdateFormReusesPetLoadedWithOwner() throws Exception {
+		Owner owner = new Owner();
+		Pet leo = new Pet();
+		leo.setName("Leo");
+		owner.addPet(leo);
+		leo.setId(TEST_PET_ID);
+		given(clinicService.findOwnerById(TEST_OWNER_ID)).willReturn(owner);
+
+		mockMvc.perform(get("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID))
+				.andExpect(status().isOk()).andExpect(model().attribute("pet", leo));
+
+		verify(clinicService, times(1)).findOwnerById(TEST_OWNER_ID);
+		verify(clinicService, never()).findPetById(anyInt());
+	}
+
 	@Test
 	void testProcessUpdateFormSuccess() throws Exception {
 		mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID).param("name", "Betty")
@@ -17,6 +17,11 @@
 package com.rmahler.petclinic.pet;
 
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -31,6 +36,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Test class for {@link PetTypeFormatter}
@@ -43,11 +50,14 @@ class PetTypeFormatterTests {
 	@Mock
 	private PetRepository pets;
 
+	private TickingClock clock;
+
 	private PetTypeFormatter petTypeFormatter;
 
 	@BeforeEach
 	void setup() {
-		this.petTypeFormatter = new PetTypeFormatter(pets);
+		this.clock = new TickingClock();
+		this.petTypeFormatter = new PetTypeFormatter(pets, Duration.ofMinutes(1), clock);
 	}
 
 	@Test
@@ -73,6 +83,58 @@ class PetTypeFormatterTests {
 		});
 	}
 
+	@Test
+	void shouldLoadPetTypesOnlyOnce() throws ParseException {
+		given(this.pets.findPetTypes()).willReturn(makePetTypes());
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+		petTypeFormatter.parse("Dog", Locale.ENGLISH);
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+		verify(this.pets, times(1)).findPetTypes();
+	}
+
+	@Test
+	void shouldReloadWhenPetTypeIsUnknown() throws ParseException {
+		given(this.pets.findPetTypes()).willReturn(makePetTypes());
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+
+		List<PetType> petTypes = makePetTypes();
+		PetType fish = new PetType();
+		fish.setName("Fish");
+		petTypes.add(fish);
+		given(this.pets.findPetTypes()).willReturn(petTypes);
+		clock.advance(Duration.ofMinutes(1));
+
+		assertThat(petTypeFormatter.parse("Fish", Locale.ENGLISH)).isSameAs(fish);
+	}
+
+	@Test
+	void shouldNotReloadForUnknownPetTypeWithinRefreshInterval() throws ParseException {
+		given(this.pets.findPetTypes()).willReturn(makePetTypes());
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+		clock.advance(Duration.ofSeconds(59));
+
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertThrows(ParseException.class, () -> petTypeFormatter.parse("Fish", Locale.ENGLISH));
+		}
+		verify(this.pets, times(1)).findPetTypes();
+	}
+
+	@Test
+	void shouldPickUpRenamedPetTypeAfterRefreshInterval() throws ParseException {
+		List<PetType> petTypes = makePetTypes();
+		given(this.pets.findPetTypes()).willReturn(petTypes);
+		petTypeFormatter.parse("Bird", Locale.ENGLISH);
+
+		PetType parrot = new PetType();
+		parrot.setName("Parrot");
+		petTypes.set(1, parrot);
+		clock.advance(Duration.ofMinutes(1));
+
+		assertThat(petTypeFormatter.parse("Parrot", Locale.ENGLISH)).isSameAs(parrot);
+		Assertions.assertThrows(ParseException.class, () -> petTypeFormatter.parse("Bird", Locale.ENGLISH));
+		verify(this.pets, times(2)).findPetTypes();
+	}
+
 	/**
 	 * Helper method to produce some sample pet types just for test purpose
 	 * @return {@link Collection} of {@link PetType}
@@ -92,4 +154,29 @@ class PetTypeFormatterTests {
 		return petTypes;
 	}
 
+	private static class TickingClock extends Clock {
+
+		private Instant now = Instant.parse("2030-01-01T08:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
 }
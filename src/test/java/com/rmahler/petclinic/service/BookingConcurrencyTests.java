@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import com.rmahler.petclinic.owner.OwnerRepository;
+import com.rmahler.petclinic.pet.PetRepository;
+import com.rmahler.petclinic.vet.VetRepository;
+import com.rmahler.petclinic.visit.BookingResult;
+import com.rmahler.petclinic.visit.Visit;
+import com.rmahler.petclinic.visit.VisitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Books visits from 64 concurrent clients through {@link ClinicServiceImpl#bookVisit},
+ * committing to the application's database. Half of the clients go through a second
+ * service instance with its own booking locks, like a second node sharing the database,
+ * so some races are only caught by the unique constraint on (vet, day, slot).
+ * <p>
+ * The visits are deleted afterwards, and the context is discarded since its slot
+ * occupancy cache still holds the booked days.
+ * </p>
+ *
+ * @author Richard Mahler
+ */
+@SpringBootTest
+@DirtiesContext
+class BookingConcurrencyTests {
+
+	private static final int CLIENTS = 64;
+
+	private static final String DESCRIPTION = "Booking concurrency test";
+
+	private static final LocalDate DAY = LocalDate.of(2099, 3, 2);
+
+	@Autowired
+	private ClinicService clinicService;
+
+	@Autowired
+	private PetRepository petRepository;
+
+	@Autowired
+	private VetRepository vetRepository;
+
+	@Autowired
+	private OwnerRepository ownerRepository;
+
+	@Autowired
+	private VisitRepository visitRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectProvider<CacheManager> cacheManager;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	private ClinicService otherNode;
+
+	@BeforeEach
+	void setup() {
+		deleteTestVisits();
+		otherNode = new ClinicServiceImpl(petRepository, vetRepository, ownerRepository, visitRepository,
+				transactionManager, cacheManager);
+	}
+
+	@AfterEach
+	void deleteTestVisits() {
+		jdbc.update("DELETE FROM visits WHERE description = ?", DESCRIPTION);
+	}
+
+	@Test
+	void shouldBookContendedSlotExactlyOnce() throws Exception {
+		List<BookingResult> results = bookConcurrently(client -> visit(1, DAY, 3));
+
+		assertThat(results).filteredOn(BookingResult::isBooked).hasSize(1);
+		assertThat(results).filteredOn(result -> !result.isBooked()).hasSize(CLIENTS - 1)
+				.allSatisfy(result -> assertThat(result.getAvailableSlots())
+						.noneMatch(slot -> slot.getSlotNum() == 3));
+		assertThat(countVisits("vet_id = 1 AND visit_date = ? AND time_slot = 3")).isEqualTo(1);
+	}
+
+	@Test
+	void shouldBookDisjointSlotsAll() throws Exception {
+		// 32 distinct (vet, slot) pairs per day over two days, so clients share locks
+		List<BookingResult> results = bookConcurrently(
+				client -> visit(1 + client % 32 / 9, DAY.plusDays(client / 32), 1 + client % 32 % 9));
+
+		assertThat(results).allMatch(BookingResult::isBooked);
+		assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM visits WHERE description = ?", Integer.class,
+				DESCRIPTION)).isEqualTo(CLIENTS);
+		assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM (SELECT DISTINCT vet_id, visit_date, time_slot "
+				+ "FROM visits WHERE description = ?) booked", Integer.class, DESCRIPTION)).isEqualTo(CLIENTS);
+	}
+
+	private List<BookingResult> bookConcurrently(IntFunction<Visit> visits) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<BookingResult>> futures = new ArrayList<>();
+			for (int client = 0; client < CLIENTS; client++) {
+				Visit visit = visits.apply(client);
+				ClinicService node = client % 2 == 0 ? clinicService : otherNode;
+				Callable<BookingResult> booking = () -> {
+					start.await();
+					return node.bookVisit(visit, null);
+				};
+				futures.add(executor.submit(booking));
+			}
+			start.countDown();
+			List<BookingResult> results = new ArrayList<>();
+			for (Future<BookingResult> future : futures) {
+				results.add(future.get(60, TimeUnit.SECONDS));
+			}
+			return results;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private int countVisits(String condition) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM visits WHERE description = ? AND " + condition,
+				Integer.class, DESCRIPTION, DAY);
+	}
+
+	private static Visit visit(int vetId, LocalDate day, int timeSlot) {
+		Visit visit = new Visit();
+		visit.setPetId(1);
+		visit.setVetId(vetId);
+		visit.setDate(day);
+		visit.setTimeSlot(timeSlot);
+		visit.setDescription(DESCRIPTION);
+		return visit;
+	}
+
+}
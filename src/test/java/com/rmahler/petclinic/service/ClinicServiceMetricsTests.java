@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.service;
+
+import java.util.Arrays;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for {@link ClinicServiceMetrics}
+ *
+ * @author Richard Mahler
+ */
+class ClinicServiceMetricsTests {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ClinicService target = mock(ClinicService.class);
+
+	private ClinicService clinicService;
+
+	@BeforeEach
+	void setup() {
+		ProxyFactory proxyFactory = new ProxyFactory(target);
+		proxyFactory.addInterface(ClinicService.class);
+		proxyFactory.addAdvice(new ClinicServiceMetrics(() -> registry));
+		clinicService = (ClinicService) proxyFactory.getProxy();
+	}
+
+	@Test
+	void shouldTimeOperationsAndRecordResultSizes() {
+		given(target.findOwnerLastNamesByPrefix("Da", 10)).willReturn(Arrays.asList("Davis", "Dawson"));
+
+		clinicService.findOwnerLastNamesByPrefix("Da", 10);
+		clinicService.findOwnerLastNamesByPrefix("Da", 10);
+
+		assertThat(registry.get("petclinic.service").tag("method", "findOwnerLastNamesByPrefix")
+				.tag("outcome", "success").timer().count()).isEqualTo(2);
+		assertThat(registry.get("petclinic.service.result.size").tag("method", "findOwnerLastNamesByPrefix")
+				.summary().totalAmount()).isEqualTo(4);
+	}
+
+	@Test
+	void shouldCountErrors() {
+		given(target.findOwnerById(1)).willThrow(new DataRetrievalFailureException("down"));
+
+		assertThatThrownBy(() -> clinicService.findOwnerById(1)).isInstanceOf(DataRetrievalFailureException.class);
+
+		assertThat(registry.get("petclinic.service").tag("method", "findOwnerById").tag("outcome", "error").timer()
+				.count()).isEqualTo(1);
+		assertThat(registry.get("petclinic.service.errors").tag("exception", "DataRetrievalFailureException")
+				.counter().count()).isEqualTo(1);
+		assertThat(registry.find("petclinic.service.result.size").tag("method", "findOwnerById").summary())
+				.isNull();
+	}
+
+}
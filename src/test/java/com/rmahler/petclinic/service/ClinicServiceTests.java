@@ -18,7 +18,12 @@ package com.rmahler.petclinic.service;
 
 import com.rmahler.petclinic.pet.PetType;
 import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetDirectory;
+import com.rmahler.petclinic.vet.VetRepository;
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,14 +31,27 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.ComponentScan;
 import com.rmahler.petclinic.owner.Owner;
+import com.rmahler.petclinic.owner.OwnerDetails;
+import com.rmahler.petclinic.owner.OwnerDetails.PetDetails;
+import com.rmahler.petclinic.owner.OwnerDetails.VisitDetails;
+import com.rmahler.petclinic.owner.OwnerSummary;
 import com.rmahler.petclinic.pet.Pet;
+import com.rmahler.petclinic.visit.SlotOccupancy;
 import com.rmahler.petclinic.visit.Visit;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -77,6 +95,12 @@ class ClinicServiceTests {
 	@Autowired
 	protected ClinicService clinicService;
 
+	@Autowired
+	private VetRepository vetRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
 	@Test
 	void shouldFindOwnersByLastName() {
 		Collection<Owner> owners = clinicService.findOwnerByLastName("Davis");
@@ -86,6 +110,49 @@ class ClinicServiceTests {
 		assertThat(owners).isEmpty();
 	}
 
+	@Test
+	void shouldListOwnerSummariesWithoutManagingEntities() {
+		entityManager.clear();
+		List<OwnerSummary> summaries = clinicService.findOwnerPageByLastName("Davis", "", 0, 10);
+
+		assertThat(summaries).hasSize(2).allSatisfy(summary -> {
+			assertThat(summary.getLastName()).isEqualTo("Davis");
+			assertThat(summary.getPetNames()).isNotEmpty();
+		});
+		assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+	}
+
+	@Test
+	void shouldPageOwnersByLastNameAndId() {
+		List<OwnerSummary> firstPage = clinicService.findOwnerPageByLastName("", "", 0, 3);
+		assertThat(firstPage).hasSize(3);
+
+		OwnerSummary last = firstPage.get(2);
+		List<OwnerSummary> secondPage = clinicService.findOwnerPageByLastName("", last.getLastName(), last.getId(),
+				3);
+		assertThat(secondPage).isNotEmpty().extracting(OwnerSummary::getId)
+				.doesNotContainAnyElementsOf(firstPage.stream().map(OwnerSummary::getId).collect(Collectors.toList()));
+		assertThat(secondPage.get(0).getLastName().compareToIgnoreCase(last.getLastName())).isGreaterThanOrEqualTo(0);
+	}
+
+	@Test
+	void shouldSummarizeOwnersWithPetNames() {
+		List<OwnerSummary> owners = clinicService.findOwnerPageByLastName("Franklin", "", 0, 10);
+		assertThat(owners).hasSize(1);
+		assertThat(owners.get(0).getAddress()).isEqualTo("110 W. Liberty St.");
+		assertThat(owners.get(0).getPetNames()).containsExactly("Leo");
+	}
+
+	@Test
+	void shouldFindOwnersAndVetsByFullName() {
+		assertThat(clinicService.ownerExistsWithFullName("george", "FRANKLIN", -1)).isTrue();
+		assertThat(clinicService.ownerExistsWithFullName("George", "Franklin", 1)).isFalse();
+		assertThat(clinicService.ownerExistsWithFullName("Harold", "Franklin", -1)).isFalse();
+
+		assertThat(clinicService.vetExistsWithFullName("Helen", "leary", -1)).isTrue();
+		assertThat(clinicService.vetExistsWithFullName("Helen", "Leary", 2)).isFalse();
+	}
+
 	@Test
 	void shouldFindSingleOwnerWithPet() {
 		Owner owner = clinicService.findOwnerById(1);
@@ -225,6 +292,11 @@ class ClinicServiceTests {
 
 		Collection<Integer> slotsBeforeCancel =  clinicService.findFilledSlots(vet.getId(), dateOfVisit);
 		assertThat(slotsBeforeCancel.size()).isEqualTo(1);
+		assertThat(clinicService.findSlotOccupancy(vet.getId(), dateOfVisit).isFilled(1)).isTrue();
+		Map<Integer, Map<LocalDate, SlotOccupancy>> occupancies = clinicService
+				.findSlotOccupancies(Arrays.asList(vet.getId(), 1), dateOfVisit.minusDays(1), dateOfVisit);
+		assertThat(occupancies.get(vet.getId()).get(dateOfVisit).isFilled(1)).isTrue();
+		assertThat(occupancies.get(1)).isEmpty();
 
 		// cancel visit
 		clinicService.cancelVisit(visitForPet.getId());
@@ -232,6 +304,7 @@ class ClinicServiceTests {
 		assertThat(cancelledVisit).isNull();
 		Collection<Integer> slotsAfterCancel =  clinicService.findFilledSlots(vet.getId(), dateOfVisit);
 		assertThat(slotsAfterCancel.size()).isEqualTo(0);
+		assertThat(clinicService.findSlotOccupancy(vet.getId(), dateOfVisit)).isEqualTo(SlotOccupancy.EMPTY);
 	}
 
 	@Test
@@ -243,6 +316,133 @@ class ClinicServiceTests {
 		assertThat(visitArr[0].getPetId()).isEqualTo(4);
 	}
 
+	@Test
+	void shouldFindVisitsForSeveralPetsAtOnce() {
+		Map<Integer, List<Visit>> visitsByPetId = clinicService.findVisitsByPetIds(Arrays.asList(1, 4, 13));
+		assertThat(visitsByPetId).containsOnlyKeys(1, 4, 13);
+		assertThat(visitsByPetId.get(1)).hasSameSizeAs(clinicService.findVisitsByPetId(1));
+		assertThat(visitsByPetId.get(4)).hasSameSizeAs(clinicService.findVisitsByPetId(4));
+		assertThat(visitsByPetId.get(4)).allMatch(visit -> visit.getPetId() == 4);
+		assertThat(visitsByPetId.get(13)).isEmpty();
+	}
+
+	@Test
+	void shouldBuildOwnerDetailsWithVisitsMostRecentFirst() {
+		Visit visit = new Visit();
+		visit.setPetId(4);
+		visit.setVetId(1);
+		visit.setDate(LocalDate.of(2011, 1, 1));
+		visit.setTimeSlot(3);
+		visit.setDescription(INTEGRATION_TEST_DESCRIPTION);
+		clinicService.saveVisit(visit);
+
+		OwnerDetails details = clinicService.findOwnerDetails(3);
+		assertThat(details.getLastName()).isEqualTo("Rodriquez");
+		assertThat(details.getPets()).extracting(PetDetails::getName).containsExactly("Jewel", "Rosy");
+
+		PetDetails jewel = details.getPets().get(0);
+		assertThat(jewel.getType()).isEqualTo("dog");
+		assertThat(jewel.getVisits()).extracting(VisitDetails::getDate)
+				.containsExactly(LocalDate.of(2011, 1, 1), LocalDate.of(2008, 9, 4));
+		assertThat(jewel.getVisits().get(0).getTimeSlotDescription()).isNotNull();
+		assertThat(jewel.getVisits().get(0).isCurrent()).isFalse();
+
+		assertThat(clinicService.findOwnerDetails(99_999)).isNull();
+	}
+
+	@Test
+	void shouldLoadOwnerDetailsInQueriesIndependentOfPetCount() {
+		Statistics statistics = startCountingStatements();
+		clinicService.findOwnerDetails(1);
+		long onePet = statistics.getPrepareStatementCount();
+
+		entityManager.clear();
+		statistics = startCountingStatements();
+		clinicService.findOwnerDetails(6);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(onePet);
+	}
+
+	@Test
+	void shouldLoadVetsWithSpecialtiesInOneQuery() {
+		Statistics statistics = startCountingStatements();
+
+		Collection<Vet> vets = vetRepository.findAll();
+		assertThat(vets).hasSize(6);
+		assertThat(vets.stream().mapToInt(Vet::getNrOfSpecialties).sum()).isEqualTo(5);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldLoadSingleVetWithoutSpecialties() {
+		Statistics statistics = startCountingStatements();
+
+		Vet vet = clinicService.findVetById(3);
+		assertThat(vet.getLastName()).isEqualTo("Douglas");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(entityManager.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(vet, "specialties"))
+				.isFalse();
+
+		assertThat(vet.getNrOfSpecialties()).isEqualTo(2);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldLoadSingleVetWithSpecialtiesInOneQuery() {
+		Statistics statistics = startCountingStatements();
+
+		Vet vet = clinicService.findVetWithSpecialtiesById(5);
+		assertThat(entityManager.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(vet, "specialties"))
+				.isTrue();
+		assertThat(vet.getNrOfSpecialties()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldServePetTypesFromSecondLevelCache() {
+		Statistics statistics = startCountingStatements();
+
+		assertThat(entityManager.find(PetType.class, 1).getName()).isEqualTo("cat");
+		entityManager.clear();
+		assertThat(entityManager.find(PetType.class, 1).getName()).isEqualTo("cat");
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getDomainDataRegionStatistics(PetType.class.getName()).getHitCount()).isEqualTo(1);
+	}
+
+	// starts from empty second-level caches, so every test sees the database load
+	private Statistics startCountingStatements() {
+		SessionFactory sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class);
+		sessionFactory.getCache().evictAllRegions();
+		Statistics statistics = sessionFactory.getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		return statistics;
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void shouldShareVetDirectoryOutsideTransactions() {
+		VetDirectory directory = clinicService.getVetDirectory();
+		assertThat(clinicService.getVetDirectory()).isSameAs(directory);
+		assertThat(directory.getVersion()).isPositive();
+		assertThat(directory.findById(3).getLastName()).isEqualTo("Douglas");
+	}
+
+	@Test
+	@Transactional
+	void shouldNotShareUncommittedVets() throws Exception {
+		Vet newVet = new Vet();
+		newVet.setFirstName("Paul");
+		newVet.setLastName("Nolan");
+		clinicService.saveVet(newVet);
+
+		VetDirectory own = clinicService.getVetDirectory();
+		assertThat(own.findById(newVet.getId())).isNotNull();
+		VetDirectory shared = CompletableFuture.supplyAsync(clinicService::getVetDirectory).get();
+		assertThat(shared).isNotSameAs(own);
+		assertThat(shared.findById(newVet.getId())).isNull();
+	}
+
 	@Test
 	@Transactional
 	void shouldAddVet() {
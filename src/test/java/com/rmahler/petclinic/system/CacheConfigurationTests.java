@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.system;
+
+import java.time.Duration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import com.rmahler.petclinic.pet.PetType;
+import com.rmahler.petclinic.vet.Specialty;
+import com.rmahler.petclinic.vet.Vet;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link CacheConfiguration}, applying its customizer with small limits to
+ * a fresh ehcache manager.
+ *
+ * @author Richard Mahler
+ */
+class CacheConfigurationTests {
+
+	private CacheManager cacheManager;
+
+	@BeforeEach
+	void setup() {
+		CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+		// a class loader of its own keeps the manager apart from those of application contexts
+		cacheManager = provider.getCacheManager(provider.getDefaultURI(), new ClassLoader(getClass().getClassLoader()) {
+		});
+		new CacheConfiguration().petclinicCacheConfigurationCustomizer(10, 1, Duration.ofMinutes(30), 2, 2, 5, 3,
+				Duration.ofMinutes(10)).customize(cacheManager);
+	}
+
+	@AfterEach
+	void close() {
+		cacheManager.close();
+	}
+
+	@Test
+	void shouldCreateConfiguredCaches() {
+		assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("ownerDetails", PetType.class.getName(),
+				Specialty.class.getName(), Vet.class.getName(), Vet.class.getName() + ".specialties",
+				RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+				RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+		assertThat(timeToLive("ownerDetails")).isEqualTo(Duration.ofMinutes(30));
+		assertThat(timeToLive(PetType.class.getName())).isEqualTo(Duration.ofMinutes(10));
+		assertThat(timeToLive(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME))
+				.isEqualTo(Duration.ofMinutes(10));
+	}
+
+	@Test
+	void shouldEvictBeyondMaxEntries() {
+		Cache<Object, Object> petTypes = cacheManager.getCache(PetType.class.getName());
+		for (int i = 0; i < 10; i++) {
+			petTypes.put(i, "type" + i);
+		}
+		int entries = 0;
+		for (Cache.Entry<Object, Object> entry : petTypes) {
+			entries++;
+		}
+		assertThat(entries).isBetween(1, 2);
+	}
+
+	@Test
+	void shouldEvictOwnerDetailsOnRequest() {
+		Cache<Object, Object> ownerDetails = cacheManager.getCache("ownerDetails");
+		ownerDetails.put(1, "details");
+		assertThat(ownerDetails.containsKey(1)).isTrue();
+
+		ownerDetails.remove(1);
+		assertThat(ownerDetails.containsKey(1)).isFalse();
+	}
+
+	@SuppressWarnings("unchecked")
+	private Duration timeToLive(String name) {
+		Eh107Configuration<Object, Object> configuration = cacheManager.getCache(name)
+				.getConfiguration(Eh107Configuration.class);
+		CacheRuntimeConfiguration<Object, Object> runtime = configuration.unwrap(CacheRuntimeConfiguration.class);
+		return runtime.getExpiryPolicy().getExpiryForCreation("key", "value");
+	}
+
+}
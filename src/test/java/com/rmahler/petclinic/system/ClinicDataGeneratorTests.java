@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rmahler.petclinic.system;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.rmahler.petclinic.system.ClinicDataGenerator.Result;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generates a small data set into the application's database, rolled back after each
+ * test.
+ *
+ * @author Richard Mahler
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ClinicDataGeneratorTests {
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private ClinicDataGenerator generator() {
+		ClinicDataGenerator generator = new ClinicDataGenerator(jdbc, transactionManager, 7);
+		generator.setOwners(300);
+		generator.setVets(3);
+		generator.setHistoryYears(1);
+		generator.setUpcomingDays(14);
+		generator.setBatchSize(50);
+		generator.setToday(LocalDate.of(2020, 6, 1));
+		return generator;
+	}
+
+	@Test
+	void shouldGenerateOwnersWithPetsAndVisits() {
+		Result result = generator().generate();
+
+		assertThat(count("SELECT COUNT(*) FROM owners WHERE id >= ?", result.getFirstOwnerId())).isEqualTo(300);
+		assertThat(count("SELECT COUNT(*) FROM pets WHERE id >= ?", result.getFirstPetId()))
+				.isEqualTo(result.getPetCount());
+		assertThat(count("SELECT MIN(pet_count) FROM (SELECT COUNT(p.id) AS pet_count FROM owners o "
+				+ "LEFT JOIN pets p ON p.owner_id = o.id WHERE o.id >= ? GROUP BY o.id) counts",
+				result.getFirstOwnerId())).isGreaterThanOrEqualTo(1);
+		assertThat(count("SELECT MAX(pet_count) FROM (SELECT COUNT(*) AS pet_count FROM pets WHERE owner_id >= ? "
+				+ "GROUP BY owner_id) counts", result.getFirstOwnerId())).isBetween(2, 15);
+		assertThat(count("SELECT COUNT(*) FROM vets WHERE id >= ?", result.getFirstVetId())).isEqualTo(3);
+		assertThat(count("SELECT COUNT(*) FROM visits WHERE vet_id >= ?", result.getFirstVetId()))
+				.isEqualTo(result.getPastVisitCount() + result.getUpcomingVisitCount());
+		assertThat(count("SELECT COUNT(*) FROM visits WHERE vet_id >= ? AND visit_date >= '2020-06-01'",
+				result.getFirstVetId())).isEqualTo(result.getUpcomingVisitCount());
+		assertThat(count("SELECT COUNT(*) FROM visits v JOIN pets p ON p.id = v.pet_id "
+				+ "WHERE v.vet_id >= ? AND v.visit_date < p.birth_date", result.getFirstVetId())).isZero();
+	}
+
+	@Test
+	void shouldSkewLastNamesAndBookUpcomingSlotsDensely() {
+		Result result = generator().generate();
+
+		int mostCommon = count("SELECT MAX(owner_count) FROM (SELECT COUNT(*) AS owner_count FROM owners "
+				+ "WHERE id >= ? GROUP BY last_name) counts", result.getFirstOwnerId());
+		assertThat(mostCommon).isGreaterThan(15);
+		// a year of history has 313 working days, the bookings 12
+		assertThat(result.getUpcomingVisitCount() / 12.0).isGreaterThan(result.getPastVisitCount() / 313.0);
+	}
+
+	@Test
+	void shouldGenerateTheSameDataFromTheSameSeed() {
+		Result first = generator().generate();
+		Result second = generator().generate();
+
+		assertThat(second.getFirstOwnerId()).isEqualTo(first.getFirstOwnerId() + first.getOwnerCount());
+		assertThat(second.getPetCount()).isEqualTo(first.getPetCount());
+		assertThat(second.getPastVisitCount()).isEqualTo(first.getPastVisitCount());
+		assertThat(second.getUpcomingVisitCount()).isEqualTo(first.getUpcomingVisitCount());
+		assertThat(owners(second)).isEqualTo(owners(first));
+	}
+
+	@Test
+	void shouldGenerateOnceAndRedoIncompleteRun() {
+		Result first = generator().generateOnce();
+		assertThat(generator().generateOnce()).isNull();
+
+		// as if the run had been interrupted
+		jdbc.update("UPDATE generator_runs SET completed = ? WHERE seed = ? AND owners = ?", false, 7, 300);
+		Result redone = generator().generateOnce();
+
+		assertThat(redone.getFirstOwnerId()).isEqualTo(first.getFirstOwnerId());
+		assertThat(redone.getFirstVetId()).isEqualTo(first.getFirstVetId());
+		assertThat(count("SELECT COUNT(*) FROM owners WHERE id >= ?", first.getFirstOwnerId())).isEqualTo(300);
+		assertThat(count("SELECT COUNT(*) FROM visits WHERE vet_id >= ?", first.getFirstVetId()))
+				.isEqualTo(first.getPastVisitCount() + first.getUpcomingVisitCount());
+		assertThat(generator().generateOnce()).isNull();
+	}
+
+	private int count(String sql, int id) {
+		return jdbc.queryForObject(sql, Integer.class, id);
+	}
+
+	private List<Map<String, Object>> owners(Result result) {
+		return jdbc.queryForList("SELECT first_name, last_name, address, city, telephone FROM owners "
+				+ "WHERE id >= ? AND id < ? ORDER BY id", result.getFirstOwnerId(),
+				result.getFirstOwnerId() + result.getOwnerCount());
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.system;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+/**
+ * Counts the SQL statements a test executes, through the instrumented data source of
+ * the application context, and fails the test when it exceeds its {@link QueryBudget}.
+ * Requests performed with MockMvc run on the test thread and are included.
+ *
+ * @author Richard Mahler
+ */
+public class QueryBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+	private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace
+			.create(QueryBudgetExtension.class);
+
+	@Override
+	public void beforeEach(ExtensionContext context) {
+		if (budgetOf(context) != null) {
+			context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatistics.begin());
+		}
+	}
+
+	@Override
+	public void afterEach(ExtensionContext context) {
+		SqlStatistics statistics = context.getStore(NAMESPACE).remove(context.getUniqueId(), SqlStatistics.class);
+		if (statistics == null) {
+			return;
+		}
+		statistics.end();
+		int budget = budgetOf(context).value();
+		if (statistics.getStatementCount() > budget) {
+			Map<String, Integer> repeated = statistics.getRepeatedStatements(2);
+			throw new AssertionFailedError("Query budget of " + budget + " exceeded: " + statistics
+					+ (repeated.isEmpty() ? "" : ", repeated statements: " + repeated));
+		}
+	}
+
+	private static QueryBudget budgetOf(ExtensionContext context) {
+		return context.getTestMethod()
+				.flatMap(method -> AnnotationSupport.findAnnotation(method, QueryBudget.class)).orElse(null);
+	}
+
+}
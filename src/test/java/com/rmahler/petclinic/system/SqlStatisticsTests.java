@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.system;
+
+import com.rmahler.petclinic.owner.OwnerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budgets of the main pages, measured against the application's database. The
+ * owner details cache and the Hibernate second-level and query caches are off, and every
+ * test gets a new context so the in-memory vet directory and slot occupancy cache start
+ * empty. A budget therefore holds for a cold request, whatever ran before.
+ *
+ * @author Richard Mahler
+ */
+@SpringBootTest(properties = { "petclinic.sql.statistics=true", "petclinic.sql.response-headers=true",
+		"spring.cache.type=none", "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false" })
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+class SqlStatisticsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Test
+	@QueryBudget(3)
+	void shouldLoadOwnerDetailsWithoutQueryPerPet() throws Exception {
+		mockMvc.perform(get("/owners/{ownerId}", 6)).andExpect(status().isOk());
+	}
+
+	@Test
+	@QueryBudget(2)
+	void shouldLoadOwnerListWithoutQueryPerOwner() throws Exception {
+		mockMvc.perform(get("/owners").param("lastName", "Davis")).andExpect(status().isOk());
+	}
+
+	@Test
+	@QueryBudget(1)
+	void shouldLoadVetListWithoutQueryPerVet() throws Exception {
+		mockMvc.perform(get("/vets.html")).andExpect(status().isOk());
+	}
+
+	@Test
+	void shouldReportStatementsOfRequestInHeaders() throws Exception {
+		mockMvc.perform(get("/owners").param("lastName", "Davis")).andExpect(status().isOk())
+				.andExpect(header().string("X-SQL-Statements", "2"))
+				.andExpect(header().exists("X-SQL-Time-Ms"));
+	}
+
+	@Test
+	void shouldReportStatementsOfResponseBodyRequestInHeaders() throws Exception {
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(header().exists("X-SQL-Statements")).andExpect(header().exists("X-SQL-Time-Ms"));
+	}
+
+	@Test
+	void shouldCountNestedUnitsOfWork() {
+		SqlStatistics outer = SqlStatistics.begin();
+		SqlStatistics inner = SqlStatistics.begin();
+		SqlStatistics.recordStatement("select 1", 1_000);
+		SqlStatistics.recordStatement("select 1", 1_000);
+		SqlStatistics.recordRow();
+		inner.end();
+		SqlStatistics.recordStatement("select 2", 1_000);
+		outer.end();
+
+		assertThat(SqlStatistics.current()).isNull();
+		assertThat(inner.getStatementCount()).isEqualTo(2);
+		assertThat(inner.getRowCount()).isEqualTo(1);
+		assertThat(inner.getRepeatedStatements(2)).containsOnlyKeys("select 1");
+		assertThat(outer.getStatementCount()).isEqualTo(3);
+		assertThat(outer.getJdbcTime().toNanos()).isEqualTo(3_000);
+	}
+
+	@Test
+	void shouldRecordStatementsWithParametersOnlyWhenAsked() {
+		SqlStatistics outer = SqlStatistics.beginRecording();
+		SqlStatistics inner = SqlStatistics.begin();
+		try {
+			owners.findById(6);
+		}
+		finally {
+			inner.end();
+			outer.end();
+		}
+
+		assertThat(outer.getStatements()).hasSize(outer.getStatementCount())
+				.anySatisfy(statement -> assertThat(statement.getParameters()).containsExactly(6));
+		assertThat(inner.getStatementCount()).isEqualTo(outer.getStatementCount());
+		assertThat(inner.getStatements()).isEmpty();
+	}
+
+}
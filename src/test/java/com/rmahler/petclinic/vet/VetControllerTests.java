@@ -16,9 +16,15 @@
 
 package com.rmahler.petclinic.vet;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,6 +36,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import com.rmahler.petclinic.service.ClinicService;
 import org.springframework.test.web.servlet.MockMvc;
@@ -64,8 +71,23 @@ class VetControllerTests {
 		radiology.setId(1);
 		radiology.setName("radiology");
 		helen.addSpecialty(radiology);
+		Specialty surgery = new Specialty();
+		surgery.setId(2);
+		surgery.setName("surgery");
 		given(this.vets.findAll()).willReturn(Lists.newArrayList(james, helen));
 		given(clinicService.findVets()).willReturn(Lists.newArrayList(james, helen));
+		given(clinicService.getVetDirectory()).willReturn(new VetDirectory(1, Lists.newArrayList(james, helen)));
+		given(clinicService.findVetWithSpecialtiesById(2)).willReturn(helen);
+		given(clinicService.getVetSpecialties()).willReturn(Lists.newArrayList(radiology, surgery));
+	}
+
+	@Test
+	void testInitUpdateFormSelectsVetSpecialties() throws Exception {
+		mockMvc.perform(get("/vets/{vetId}/edit", 2)).andExpect(status().isOk())
+				.andExpect(model().attribute("allspecialties",
+						contains(allOf(hasProperty("name", is("radiology")), hasProperty("selected", is(true))),
+								allOf(hasProperty("name", is("surgery")), hasProperty("selected", is(false))))))
+				.andExpect(view().name("vets/createOrUpdateVetForm"));
 	}
 
 	@Test
@@ -82,4 +104,31 @@ class VetControllerTests {
 				.andExpect(jsonPath("$.vetList[0].id").value(1));
 	}
 
+	@Test
+	void testShowResourcesVetListNotModified() throws Exception {
+		String eTag = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT)).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		assertThat(eTag).isNotNull();
+
+		mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified()).andExpect(content().string(""));
+		// another Accept header may negotiate another representation
+		mockMvc.perform(get("/vets").header(HttpHeaders.ACCEPT, "application/json, */*")
+				.header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+	}
+
+	@Test
+	void testShowVetListHtmlModifiedAfterVetSaved() throws Exception {
+		String eTag = mockMvc.perform(get("/vets.html")).andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED)).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		given(clinicService.getVetDirectory()).willReturn(new VetDirectory(2, Lists.newArrayList()));
+		mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk())
+				.andExpect(view().name("vets/vetList"));
+	}
+
 }
@@ -15,6 +15,8 @@
  */
 package com.rmahler.petclinic.vet;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.util.SerializationUtils;
 
@@ -37,4 +39,41 @@ class VetTests {
 		assertThat(other.getId()).isEqualTo(vet.getId());
 	}
 
+	@Test
+	void testSpecialtiesSortedAndSharedUntilChanged() {
+		Vet vet = new Vet();
+		vet.addSpecialty(specialty(1, "surgery"));
+		vet.addSpecialty(specialty(2, "Dentistry"));
+
+		List<Specialty> specialties = vet.getSpecialties();
+		assertThat(specialties).extracting(Specialty::getName).containsExactly("Dentistry", "surgery");
+		assertThat(vet.getSpecialties()).isSameAs(specialties);
+
+		vet.addSpecialty(specialty(3, "radiology"));
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("Dentistry", "radiology",
+				"surgery");
+
+		Vet other = (Vet) SerializationUtils.deserialize(SerializationUtils.serialize(vet));
+		assertThat(other.getSpecialties()).hasSize(3);
+	}
+
+	@Test
+	void testSpecialtiesResortedAfterRename() {
+		Vet vet = new Vet();
+		Specialty surgery = specialty(1, "surgery");
+		vet.addSpecialty(surgery);
+		vet.addSpecialty(specialty(2, "dentistry"));
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery");
+
+		surgery.setName("anesthesia");
+		assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("anesthesia", "dentistry");
+	}
+
+	private static Specialty specialty(int id, String name) {
+		Specialty specialty = new Specialty();
+		specialty.setId(id);
+		specialty.setName(name);
+		return specialty;
+	}
+
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.vet.Specialty;
+import com.rmahler.petclinic.vet.Vet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link AvailabilityController}
+ *
+ * @author Richard Mahler
+ */
+@WebMvcTest(AvailabilityController.class)
+class AvailabilityControllerTests {
+
+	// a Monday and Tuesday in the future, so both days are bookable
+	private static final LocalDate MONDAY = LocalDate.now().plusWeeks(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+	private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private ClinicService clinicService;
+
+	@BeforeEach
+	void setup() {
+		Specialty surgery = new Specialty();
+		surgery.setId(2);
+		surgery.setName("surgery");
+		Vet james = new Vet();
+		james.setId(1);
+		james.setFirstName("James");
+		james.setLastName("Carter");
+		Vet linda = new Vet();
+		linda.setId(3);
+		linda.setFirstName("Linda");
+		linda.setLastName("Douglas");
+		linda.addSpecialty(surgery);
+		given(clinicService.findVets()).willReturn(Arrays.asList(james, linda));
+
+		Map<Integer, Map<LocalDate, SlotOccupancy>> occupancies = new HashMap<>();
+		occupancies.put(1, Collections.singletonMap(MONDAY, SlotOccupancy.of(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9))));
+		occupancies.put(3, Collections.singletonMap(MONDAY, SlotOccupancy.of(Arrays.asList(1, 2))));
+		given(clinicService.findSlotOccupancies(anyCollection(), any(), any())).willReturn(occupancies);
+	}
+
+	@Test
+	void testFindAvailableSlotsInOneQuery() throws Exception {
+		mockMvc.perform(get("/availability").param("from", MONDAY.toString()).param("to", TUESDAY.toString()))
+				.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(3)))
+				.andExpect(jsonPath("$[0].vetId").value(3)).andExpect(jsonPath("$[0].slots", hasSize(7)))
+				.andExpect(jsonPath("$[1].vetId").value(1)).andExpect(jsonPath("$[1].slots", hasSize(9)));
+		verify(clinicService, times(1)).findSlotOccupancies(anyCollection(), any(), any());
+	}
+
+	@Test
+	void testFindAvailableSlotsBySpecialty() throws Exception {
+		mockMvc.perform(get("/availability").param("from", MONDAY.toString()).param("to", MONDAY.toString())
+				.param("specialty", "Surgery")).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].vetName").value("Linda Douglas"));
+	}
+
+	@Test
+	void testFindFirstAvailableSlot() throws Exception {
+		mockMvc.perform(get("/availability/first").param("from", MONDAY.toString()).param("to", TUESDAY.toString()))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.vetId").value(3))
+				.andExpect(jsonPath("$.slots[0].slotNum").value(3));
+	}
+
+	@Test
+	void testRejectInvalidRange() throws Exception {
+		mockMvc.perform(get("/availability").param("from", TUESDAY.toString()).param("to", MONDAY.toString()))
+				.andExpect(status().isBadRequest());
+	}
+
+}
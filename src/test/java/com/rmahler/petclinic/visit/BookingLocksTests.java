@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link BookingLocks}
+ *
+ * @author Richard Mahler
+ */
+class BookingLocksTests {
+
+	private static final int VETS = 6;
+
+	private static final int DAYS = 20;
+
+	@Test
+	void shouldMapSameVetAndDayToSameLock() {
+		BookingLocks locks = new BookingLocks(64);
+		LocalDate day = LocalDate.of(2030, 1, 7);
+		assertThat(locks.lockFor(3, day)).isSameAs(locks.lockFor(3, LocalDate.of(2030, 1, 7)));
+	}
+
+	@Test
+	void shouldSpreadVetsAndDaysOverStripes() {
+		BookingLocks locks = new BookingLocks(1024);
+		LocalDate start = LocalDate.of(2030, 1, 1);
+		Set<Lock> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int vet = 1; vet <= VETS; vet++) {
+			for (int day = 0; day < DAYS; day++) {
+				distinct.add(locks.lockFor(vet, start.plusDays(day)));
+			}
+		}
+		assertThat(distinct.size()).isGreaterThan(VETS * DAYS / 2);
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link SlotHolds}
+ *
+ * @author Richard Mahler
+ */
+class SlotHoldsTests {
+
+	private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+	private TickingClock clock;
+
+	private SlotHolds holds;
+
+	@BeforeEach
+	void setup() {
+		clock = new TickingClock();
+		holds = new SlotHolds(Duration.ofMinutes(5), 3, clock);
+	}
+
+	@Test
+	void shouldRefuseSlotHeldByOther() {
+		assertThat(holds.hold(1, DAY, 3, "a")).isTrue();
+		assertThat(holds.hold(1, DAY, 3, "b")).isFalse();
+		assertThat(holds.hold(1, DAY, 3, "a")).isTrue();
+		assertThat(holds.hold(2, DAY, 3, "b")).isTrue();
+
+		assertThat(holds.isHeldByOther(1, DAY, 3, "b")).isTrue();
+		assertThat(holds.isHeldByOther(1, DAY, 3, "a")).isFalse();
+		assertThat(holds.heldMask(1, DAY, "b")).isEqualTo(1 << 3);
+		assertThat(holds.heldMask(1, DAY, "a")).isZero();
+		assertThat(holds.heldMask(1, DAY, null)).isEqualTo(1 << 3);
+	}
+
+	@Test
+	void shouldKeepOneHoldPerHolder() {
+		holds.hold(1, DAY, 3, "a");
+		holds.hold(1, DAY, 4, "a");
+		holds.hold(1, DAY, 5, "b");
+
+		assertThat(holds.size()).isEqualTo(2);
+		assertThat(holds.heldMask(1, DAY, "b")).isEqualTo(1 << 4);
+		// a refused hold keeps the previous one
+		assertThat(holds.hold(1, DAY, 5, "a")).isFalse();
+		assertThat(holds.heldMask(1, DAY, "b")).isEqualTo(1 << 4);
+
+		holds.release("a");
+
+		assertThat(holds.size()).isEqualTo(1);
+		assertThat(holds.hold(1, DAY, 4, "b")).isTrue();
+		assertThat(holds.size()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldRefuseNewHoldersWhenFull() {
+		holds.hold(1, DAY, 3, "a");
+		holds.hold(1, DAY, 4, "b");
+		clock.advance(Duration.ofMinutes(2));
+		holds.hold(1, DAY, 5, "c");
+
+		assertThat(holds.hold(1, DAY, 6, "d")).isFalse();
+		// holders with a hold can still move it
+		assertThat(holds.hold(1, DAY, 7, "c")).isTrue();
+		assertThat(holds.size()).isEqualTo(3);
+
+		clock.advance(Duration.ofMinutes(4));
+		assertThat(holds.hold(1, DAY, 6, "d")).isTrue();
+		assertThat(holds.size()).isEqualTo(2);
+	}
+
+	@Test
+	void shouldIgnoreAndSweepExpiredHolds() {
+		holds.hold(1, DAY, 3, "a");
+		clock.advance(Duration.ofMinutes(4));
+		holds.hold(1, DAY, 4, "b");
+		clock.advance(Duration.ofMinutes(2));
+
+		assertThat(holds.isHeldByOther(1, DAY, 3, "c")).isFalse();
+		assertThat(holds.heldMask(1, DAY, "c")).isEqualTo(1 << 4);
+		assertThat(holds.sweep()).isEqualTo(1);
+		assertThat(holds.size()).isEqualTo(1);
+
+		clock.advance(Duration.ofMinutes(4));
+		assertThat(holds.hold(1, DAY, 4, "c")).isTrue();
+	}
+
+	private static class TickingClock extends Clock {
+
+		private Instant now = Instant.parse("2030-01-01T08:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link SlotOccupancyCache}
+ *
+ * @author Richard Mahler
+ */
+class SlotOccupancyCacheTests {
+
+	private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+	private SlotOccupancyCache cache;
+
+	private AtomicInteger loads;
+
+	@BeforeEach
+	void setup() {
+		cache = new SlotOccupancyCache(100, 30, 0);
+		loads = new AtomicInteger();
+	}
+
+	private SlotOccupancy load(int vetId, LocalDate day) {
+		loads.incrementAndGet();
+		return SlotOccupancy.EMPTY.withFilled(1);
+	}
+
+	@Test
+	void shouldLoadOnceAndCountHits() {
+		cache.get(1, TOMORROW, this::load);
+		cache.get(1, TOMORROW, this::load);
+		cache.get(1, TOMORROW, this::load);
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(2);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitRate()).isEqualTo(2.0 / 3);
+	}
+
+	@Test
+	void shouldNotCacheDaysOutsideHorizon() {
+		LocalDate farAway = LocalDate.now().plusDays(31);
+		cache.get(1, farAway, this::load);
+		cache.get(1, farAway, this::load);
+		cache.get(1, LocalDate.now().minusDays(1), this::load);
+		assertThat(loads.get()).isEqualTo(3);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void shouldWriteThroughBookingsAndCancellations() {
+		cache.get(1, TOMORROW, this::load);
+		cache.fill(1, TOMORROW, 4);
+		assertThat(cache.get(1, TOMORROW, this::load).isFilled(4)).isTrue();
+		cache.free(1, TOMORROW, 1);
+		assertThat(cache.get(1, TOMORROW, this::load).isFilled(1)).isFalse();
+		assertThat(loads.get()).isEqualTo(1);
+	}
+
+	@Test
+	void shouldIgnoreUpdatesForUncachedDays() {
+		cache.fill(1, TOMORROW, 4);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void shouldVerifyEveryNthHitButNoMisses() {
+		SlotOccupancyCache verifying = new SlotOccupancyCache(100, 30, 3);
+		for (int vetId = 1; vetId <= 5; vetId++) {
+			verifying.get(vetId, TOMORROW, this::load);
+		}
+		assertThat(verifying.getVerificationCount()).isZero();
+		for (int i = 0; i < 7; i++) {
+			verifying.get(1, TOMORROW, this::load);
+		}
+		assertThat(verifying.getVerificationCount()).isEqualTo(2);
+		assertThat(loads.get()).isEqualTo(7);
+		assertThat(verifying.getStaleCount()).isZero();
+	}
+
+	@Test
+	void shouldReplaceStaleEntryFoundByVerification() {
+		SlotOccupancyCache verifying = new SlotOccupancyCache(100, 30, 1);
+		verifying.get(1, TOMORROW, (vetId, day) -> SlotOccupancy.EMPTY.withFilled(2));
+		assertThat(verifying.get(1, TOMORROW, this::load)).isEqualTo(SlotOccupancy.EMPTY.withFilled(1));
+		assertThat(verifying.getStaleCount()).isEqualTo(1);
+		assertThat(verifying.size()).isZero();
+	}
+
+	@Test
+	void shouldInvalidateOnlyStaleEntries() {
+		cache.get(1, TOMORROW, this::load);
+		assertThat(cache.invalidateIfStale(1, TOMORROW, SlotOccupancy.EMPTY.withFilled(1))).isFalse();
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(cache.invalidateIfStale(1, TOMORROW, SlotOccupancy.EMPTY)).isTrue();
+		assertThat(cache.size()).isZero();
+		assertThat(cache.invalidateIfStale(2, TOMORROW, SlotOccupancy.EMPTY)).isFalse();
+	}
+
+	@Test
+	void shouldNotLoseBookingMadeWhileLoading() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch booked = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the loader reads the database before the booking commits
+			Future<?> reader = executor.submit(() -> cache.get(1, TOMORROW, (vetId, day) -> {
+				loading.countDown();
+				await(booked);
+				return SlotOccupancy.EMPTY;
+			}));
+			assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+			cache.fill(1, TOMORROW, 3);
+			booked.countDown();
+			reader.get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		// the database after the booking, read again if the loaded occupancy was dropped
+		assertThat(cache.get(1, TOMORROW, (vetId, day) -> SlotOccupancy.EMPTY.withFilled(3)).isFilled(3)).isTrue();
+	}
+
+	@Test
+	void shouldNotCacheLoadRacingWithUpdate() {
+		SlotOccupancy loaded = cache.get(1, TOMORROW, (vetId, day) -> {
+			// the loader holds no lock of the cache, so updates can run meanwhile
+			cache.fill(1, TOMORROW, 3);
+			return SlotOccupancy.EMPTY;
+		});
+		assertThat(loaded).isEqualTo(SlotOccupancy.EMPTY);
+		assertThat(cache.size()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
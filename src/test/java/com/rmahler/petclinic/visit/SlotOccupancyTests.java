@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.rmahler.petclinic.visit;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link SlotOccupancy}
+ *
+ * @author Richard Mahler
+ */
+class SlotOccupancyTests {
+
+	@Test
+	void shouldTrackFilledSlots() {
+		SlotOccupancy occupancy = SlotOccupancy.of(Arrays.asList(1, 5, 42));
+		assertThat(occupancy.isFilled(1)).isTrue();
+		assertThat(occupancy.isFilled(5)).isTrue();
+		assertThat(occupancy.isFilled(2)).isFalse();
+		assertThat(occupancy.getFilledCount()).isEqualTo(2);
+		assertThat(occupancy.getFreeCount()).isEqualTo(7);
+	}
+
+	@Test
+	void shouldFillAndFreeSlotsWithoutMutating() {
+		SlotOccupancy filled = SlotOccupancy.EMPTY.withFilled(3);
+		assertThat(SlotOccupancy.EMPTY.isFilled(3)).isFalse();
+		assertThat(filled.isFilled(3)).isTrue();
+		assertThat(filled.withFreed(3)).isEqualTo(SlotOccupancy.EMPTY);
+	}
+
+	@Test
+	void shouldBeFullWhenAllSlotsAreBooked() {
+		assertThat(SlotOccupancy.of(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9)).isFull()).isTrue();
+		assertThat(SlotOccupancy.of(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)).isFull()).isFalse();
+	}
+
+	@Test
+	void shouldShareTimeSlotDescriptors() {
+		List<TimeSlot> slots = TimeSlotFormatter.getAvailableSlots(SlotOccupancy.of(Arrays.asList(1, 5)));
+		assertThat(slots).hasSize(7);
+		assertThat(slots.get(0)).isSameAs(TimeSlotFormatter.getTimeSlot(2));
+		assertThat(slots.get(0).getDescription()).isEqualTo("9 AM to 10 AM");
+	}
+
+}
@@ -16,7 +16,15 @@
 
 package com.rmahler.petclinic.visit;
 
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -25,16 +33,21 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.rmahler.petclinic.pet.PetRepository;
 import com.rmahler.petclinic.vet.Vet;
+import com.rmahler.petclinic.vet.VetDirectory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import com.rmahler.petclinic.pet.Pet;
 import com.rmahler.petclinic.service.ClinicService;
+import com.rmahler.petclinic.service.RequestIdentityMap;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Arrays;
 import java.util.Collections;
 
@@ -44,6 +57,7 @@ import java.util.Collections;
  * @author Colin But
  */
 @WebMvcTest(VisitController.class)
+@Import(RequestIdentityMap.class)
 class VisitControllerTests {
 
 	private static final int TEST_PET_ID = 1;
@@ -83,9 +97,17 @@ class VisitControllerTests {
 		given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
 		given(clinicService.findPetById(TEST_PET_ID)).willReturn(new Pet());
 		given(clinicService.findVets()).willReturn(Arrays.asList(james, helen));
+		given(clinicService.getVetDirectory()).willReturn(new VetDirectory(1, Arrays.asList(james, helen)));
 		given(clinicService.findPetById(TEST_PET_ID)).willReturn(new Pet());
 		given(clinicService.findVisitsByPetId(TEST_PET_ID)).willReturn(Collections.singletonList(visit));
+		given(clinicService.findVisitsByPetIds(Collections.singleton(TEST_PET_ID)))
+				.willReturn(Collections.singletonMap(TEST_PET_ID, Collections.singletonList(visit)));
 		given(clinicService.findFilledSlots(TEST_VET_ID, LocalDate.now())).willReturn(Collections.emptyList());
+		given(clinicService.findSlotOccupancy(TEST_VET_ID, LocalDate.now())).willReturn(SlotOccupancy.EMPTY);
+		given(clinicService.findSlotAvailability(eq(2), any(LocalDate.class), anyString()))
+				.willReturn(SlotOccupancy.of(Arrays.asList(1, 2)));
+		given(clinicService.holdSlot(eq(2), any(LocalDate.class), anyInt(), anyString())).willReturn(true);
+		given(clinicService.bookVisit(any(Visit.class), any())).willReturn(BookingResult.booked());
 	}
 
 	@Test
@@ -102,6 +124,40 @@ class VisitControllerTests {
 				.andExpect(status().is3xxRedirection()).andExpect(view().name("redirect:/owners/{ownerId}"));
 	}
 
+	@Test
+	void testProcessNewVisitFormSlotTaken() throws Exception {
+		given(clinicService.bookVisit(any(Visit.class), any()))
+				.willReturn(BookingResult.slotTaken(SlotOccupancy.of(Arrays.asList(1, 2))));
+		mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID).param("name", "George")
+				.param("description", "Visit Description").param("timeSlot", "1").param("vetSelection", "2")
+				.param("action", "save")).andExpect(status().isOk())
+				.andExpect(model().attributeHasFieldErrorCode("visit", "timeSlot", "slot_taken"))
+				.andExpect(model().attribute("availableslots", hasSize(7)))
+				.andExpect(view().name("pets/createOrUpdateVisitForm"));
+	}
+
+	@Test
+	void testCheckAvailabilityHoldsFirstFreeSlot() throws Exception {
+		LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+		mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID).param("date", monday.toString())
+				.param("vetSelection", "2").param("holdToken", "form-1").param("action", "checkavail"))
+				.andExpect(status().isOk()).andExpect(model().attribute("availableslots", hasSize(7)))
+				.andExpect(model().attribute("holdToken", "form-1"))
+				.andExpect(model().attribute("selectedvet", hasProperty("lastName", is("Leary"))))
+				.andExpect(model().attribute("visit", hasProperty("timeSlot", is(3))))
+				.andExpect(view().name("pets/createOrUpdateVisitForm"));
+		verify(clinicService).releaseSlotHolds("form-1");
+		verify(clinicService).holdSlot(2, monday, 3, "form-1");
+	}
+
+	@Test
+	void testCancelReleasesHolds() throws Exception {
+		mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/visits/new", 1, TEST_PET_ID).param("vetSelection", "")
+				.param("holdToken", "form-1").param("action", "cancel")).andExpect(status().is3xxRedirection())
+				.andExpect(view().name("redirect:/owners/{ownerId}"));
+		verify(clinicService).releaseSlotHolds("form-1");
+	}
+
 	@Test
 	void testProcessNewVisitFormHasErrors() throws Exception {
 		mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID).param("name", "George")